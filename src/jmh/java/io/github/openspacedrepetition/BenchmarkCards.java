@@ -0,0 +1,36 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import java.time.Instant;
+
+final class BenchmarkCards {
+
+    static final Instant START = Instant.parse("2022-11-29T12:30:00Z");
+
+    private BenchmarkCards() {}
+
+    /*
+    builds a card with a fixed id and due date (avoiding the id generation in Card.Builder)
+    and reviews it until it reaches the requested state
+    */
+    static Card cardInState(Scheduler scheduler, State state) {
+
+        Card card = Card.builder().cardId(1).due(START).build();
+
+        switch (state) {
+            case LEARNING -> {
+                card = scheduler.reviewCard(card, Rating.AGAIN, card.getDue()).card();
+            }
+            case REVIEW -> {
+                card = scheduler.reviewCard(card, Rating.EASY, card.getDue()).card();
+                card = scheduler.reviewCard(card, Rating.GOOD, card.getDue()).card();
+            }
+            case RELEARNING -> {
+                card = scheduler.reviewCard(card, Rating.EASY, card.getDue()).card();
+                card = scheduler.reviewCard(card, Rating.AGAIN, card.getDue()).card();
+            }
+        }
+
+        return card;
+    }
+}
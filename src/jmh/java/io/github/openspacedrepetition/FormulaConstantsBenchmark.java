@@ -0,0 +1,188 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import java.time.Duration;
+import java.time.Instant;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+
+/*
+compares the review formulas of a review card with the configuration-only terms precomputed
+once, as Scheduler does, against the previous formulas that recompute them with Math.exp and
+Math.pow on every review
+
+both are reference copies of the Scheduler formulas, checked against Scheduler.reviewCard in
+setUp, so the two benchmarks differ only in the precomputed terms
+*/
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class FormulaConstantsBenchmark {
+
+    @Param({"AGAIN", "HARD", "GOOD", "EASY"})
+    public String rating;
+
+    private double[] parameters;
+    private double desiredRetention;
+    private int maximumInterval;
+    private double decay;
+    private double factor;
+
+    private Rating reviewRating;
+    private double stability;
+    private double difficulty;
+    private int elapsedDays;
+
+    // the precomputed terms
+    private double initialDifficultyEasy;
+    private double[] deltaDifficulties;
+    private double recallStabilityFactor;
+    private double forgetShortTermStabilityDivisor;
+    private double intervalModifier;
+
+    private final double[] result = new double[3];
+
+    @Setup
+    public void setUp() {
+
+        Scheduler scheduler = Scheduler.builder().enableFuzzing(false).build();
+        parameters = scheduler.getParameters();
+        desiredRetention = scheduler.getDesiredRetention();
+        maximumInterval = scheduler.getMaximumInterval();
+        decay = scheduler.getDECAY();
+        factor = scheduler.getFACTOR();
+
+        reviewRating = Rating.valueOf(rating);
+        Card card = BenchmarkCards.cardInState(scheduler, State.REVIEW);
+        Instant reviewDatetime = card.getDue();
+        stability = card.getStability();
+        difficulty = card.getDifficulty();
+        elapsedDays = scheduler.daysBetween(card.getLastReview(), reviewDatetime);
+
+        initialDifficultyEasy =
+                clampDifficulty(
+                        parameters[4]
+                                - Math.pow(Math.E, parameters[5] * (Rating.EASY.getValue() - 1))
+                                + 1);
+        deltaDifficulties = new double[Rating.values().length];
+        for (Rating value : Rating.values()) {
+            deltaDifficulties[value.ordinal()] = -(parameters[6] * (value.getValue() - 3));
+        }
+        recallStabilityFactor = Math.exp(parameters[8]);
+        forgetShortTermStabilityDivisor = Math.exp(parameters[17] * parameters[18]);
+        intervalModifier = Math.pow(desiredRetention, 1 / decay) - 1;
+
+        Card reviewedCard = scheduler.reviewCard(card, reviewRating, reviewDatetime).card();
+        for (double[] reviewed : new double[][] {precomputed().clone(), baseline().clone()}) {
+            if (reviewed[0] != reviewedCard.getStability()
+                    || reviewed[1] != reviewedCard.getDifficulty()
+                    || (reviewRating != Rating.AGAIN
+                            && (long) reviewed[2]
+                                    != Duration.between(reviewDatetime, reviewedCard.getDue())
+                                            .toDays())) {
+                throw new IllegalStateException("reference formulas differ from Scheduler");
+            }
+        }
+    }
+
+    @Benchmark
+    public double[] precomputed() {
+
+        double retrievability = Math.pow(1 + factor * elapsedDays / stability, decay);
+
+        double nextStability;
+        if (reviewRating == Rating.AGAIN) {
+            double longTerm =
+                    parameters[11]
+                            * Math.pow(difficulty, -parameters[12])
+                            * (Math.pow(stability + 1, parameters[13]) - 1)
+                            * Math.exp((1 - retrievability) * parameters[14]);
+            nextStability = Math.min(longTerm, stability / forgetShortTermStabilityDivisor);
+        } else {
+            nextStability =
+                    stability
+                            * (1
+                                    + recallStabilityFactor
+                                            * (11 - difficulty)
+                                            * Math.pow(stability, -parameters[9])
+                                            * (Math.exp((1 - retrievability) * parameters[10]) - 1)
+                                            * (reviewRating == Rating.HARD ? parameters[15] : 1)
+                                            * (reviewRating == Rating.EASY ? parameters[16] : 1));
+        }
+        nextStability = Math.max(nextStability, Scheduler.STABILITY_MIN);
+
+        double deltaDifficulty = deltaDifficulties[reviewRating.ordinal()];
+        double nextDifficulty =
+                clampDifficulty(
+                        parameters[7] * initialDifficultyEasy
+                                + (1 - parameters[7])
+                                        * (difficulty
+                                                + (10.0 - difficulty) * deltaDifficulty / 9.0));
+
+        int nextInterval = (int) Math.round((nextStability / factor) * intervalModifier);
+
+        result[0] = nextStability;
+        result[1] = nextDifficulty;
+        result[2] = Math.min(Math.max(nextInterval, 1), maximumInterval);
+
+        return result;
+    }
+
+    @Benchmark
+    public double[] baseline() {
+
+        double retrievability = Math.pow(1 + factor * elapsedDays / stability, decay);
+
+        double nextStability;
+        if (reviewRating == Rating.AGAIN) {
+            double longTerm =
+                    parameters[11]
+                            * Math.pow(difficulty, -parameters[12])
+                            * (Math.pow(stability + 1, parameters[13]) - 1)
+                            * Math.exp((1 - retrievability) * parameters[14]);
+            nextStability =
+                    Math.min(longTerm, stability / Math.exp(parameters[17] * parameters[18]));
+        } else {
+            nextStability =
+                    stability
+                            * (1
+                                    + Math.exp(parameters[8])
+                                            * (11 - difficulty)
+                                            * Math.pow(stability, -parameters[9])
+                                            * (Math.exp((1 - retrievability) * parameters[10]) - 1)
+                                            * (reviewRating == Rating.HARD ? parameters[15] : 1)
+                                            * (reviewRating == Rating.EASY ? parameters[16] : 1));
+        }
+        nextStability = Math.max(nextStability, Scheduler.STABILITY_MIN);
+
+        double initialDifficulty =
+                clampDifficulty(
+                        parameters[4]
+                                - Math.pow(Math.E, parameters[5] * (Rating.EASY.getValue() - 1))
+                                + 1);
+        double deltaDifficulty = -(parameters[6] * (reviewRating.getValue() - 3));
+        double nextDifficulty =
+                clampDifficulty(
+                        parameters[7] * initialDifficulty
+                                + (1 - parameters[7])
+                                        * (difficulty
+                                                + (10.0 - difficulty) * deltaDifficulty / 9.0));
+
+        int nextInterval =
+                (int)
+                        Math.round(
+                                (nextStability / factor)
+                                        * (Math.pow(desiredRetention, 1 / decay) - 1));
+
+        result[0] = nextStability;
+        result[1] = nextDifficulty;
+        result[2] = Math.min(Math.max(nextInterval, 1), maximumInterval);
+
+        return result;
+    }
+
+    private static double clampDifficulty(double difficulty) {
+
+        return Math.min(Math.max(difficulty, 1.0), 10.0);
+    }
+}
@@ -0,0 +1,59 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import java.time.Duration;
+import java.time.Instant;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class RetrievabilityBenchmark {
+
+    private static final int DECK_SIZE = 10_000;
+
+    private Scheduler scheduler;
+    private Card card;
+    private Instant currentDatetime;
+
+    private double[] stabilities;
+    private long[] lastReviewEpochMillis;
+    private double[] retrievabilities;
+
+    @Setup
+    public void setUp() {
+
+        scheduler = Scheduler.builder().enableFuzzing(false).build();
+        card = BenchmarkCards.cardInState(scheduler, State.REVIEW);
+        currentDatetime = card.getDue().plus(Duration.ofDays(3));
+
+        stabilities = new double[DECK_SIZE];
+        lastReviewEpochMillis = new long[DECK_SIZE];
+        retrievabilities = new double[DECK_SIZE];
+        for (int i = 0; i < DECK_SIZE; i++) {
+            stabilities[i] = card.getStability() + i % 100;
+            lastReviewEpochMillis[i] =
+                    card.getLastReview().minus(Duration.ofHours(i % 1000)).toEpochMilli();
+        }
+    }
+
+    @Benchmark
+    public double getCardRetrievability() {
+
+        return scheduler.getCardRetrievability(card, currentDatetime);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DECK_SIZE)
+    public double[] getCardRetrievabilities() {
+
+        scheduler.getCardRetrievabilities(
+                stabilities,
+                lastReviewEpochMillis,
+                currentDatetime.toEpochMilli(),
+                retrievabilities);
+
+        return retrievabilities;
+    }
+}
@@ -0,0 +1,52 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import java.time.Instant;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class ReviewCardBenchmark {
+
+    @Param({"LEARNING", "REVIEW", "RELEARNING"})
+    public String cardState;
+
+    @Param({"AGAIN", "HARD", "GOOD", "EASY"})
+    public String rating;
+
+    @Param({"true", "false"})
+    public boolean enableFuzzing;
+
+    private Scheduler scheduler;
+    private Card card;
+    private Rating reviewRating;
+    private Instant reviewDatetime;
+    private CardState reusableCardState;
+
+    @Setup
+    public void setUp() {
+
+        scheduler = Scheduler.builder().enableFuzzing(enableFuzzing).build();
+        card = BenchmarkCards.cardInState(scheduler, State.valueOf(cardState));
+        reviewRating = Rating.valueOf(rating);
+        reviewDatetime = card.getDue();
+        reusableCardState = new CardState(card);
+    }
+
+    @Benchmark
+    public CardAndReviewLog reviewCard() {
+
+        return scheduler.reviewCard(card, reviewRating, reviewDatetime, null);
+    }
+
+    @Benchmark
+    public CardState reviewCardState() {
+
+        reusableCardState.set(card);
+        scheduler.reviewCard(reusableCardState, reviewRating, reviewDatetime.toEpochMilli());
+
+        return reusableCardState;
+    }
+}
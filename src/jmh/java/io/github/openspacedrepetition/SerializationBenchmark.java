@@ -0,0 +1,65 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+
+@org.openjdk.jmh.annotations.State(Scope.Thread)
+public class SerializationBenchmark {
+
+    private Scheduler scheduler;
+    private Card card;
+    private ReviewLog reviewLog;
+
+    private String schedulerJson;
+    private String cardJson;
+    private String reviewLogJson;
+
+    @Setup
+    public void setUp() {
+
+        scheduler = Scheduler.builder().build();
+        card = BenchmarkCards.cardInState(scheduler, State.REVIEW);
+        reviewLog = scheduler.reviewCard(card, Rating.GOOD, card.getDue(), 3000).reviewLog();
+
+        schedulerJson = scheduler.toJson();
+        cardJson = card.toJson();
+        reviewLogJson = reviewLog.toJson();
+    }
+
+    @Benchmark
+    public String cardToJson() {
+        return card.toJson();
+    }
+
+    @Benchmark
+    public Card cardFromJson() {
+        return Card.fromJson(cardJson);
+    }
+
+    @Benchmark
+    public String schedulerToJson() {
+        return scheduler.toJson();
+    }
+
+    @Benchmark
+    public Scheduler schedulerFromJson() {
+        return Scheduler.fromJson(schedulerJson);
+    }
+
+    @Benchmark
+    public String reviewLogToJson() {
+        return reviewLog.toJson();
+    }
+
+    @Benchmark
+    public ReviewLog reviewLogFromJson() {
+        return ReviewLog.fromJson(reviewLogJson);
+    }
+
+    @Benchmark
+    public ReviewLog reviewLogRoundTrip() {
+        return ReviewLog.fromJson(reviewLog.toJson());
+    }
+}
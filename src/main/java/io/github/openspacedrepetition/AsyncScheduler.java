@@ -0,0 +1,290 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/*
+asynchronous facade over a Scheduler for serving reviews from concurrent callers
+
+reviews are put on a bounded queue and drained on the configured executor by a single task at
+a time, which takes up to maxBatchSize queued reviews (waiting up to batchWindow for more to
+arrive) and reviews them together with Scheduler.reviewCards. when the queue is full or the
+facade is closed, reviewAsync returns an already failed future with a
+RejectedExecutionException, so callers can shed load instead of queueing without bound
+
+any Executor can be used, e.g. Executors.newVirtualThreadPerTaskExecutor() on Java 21+. the
+default ForkJoinPool.commonPool() only suits a zero batchWindow: with a window the drain task
+blocks its thread while waiting for more reviews, so build() then requires another executor. a
+review that throws fails only its own future, the rest of its batch is reviewed as usual. closing
+the facade stops new reviews but finishes the queued ones, the executor is not shut down
+*/
+@Getter
+public class AsyncScheduler implements AutoCloseable {
+
+    private final Scheduler scheduler;
+    private final Executor executor;
+    private final int queueCapacity;
+    private final int maxBatchSize;
+    private final Duration batchWindow;
+
+    @Getter(AccessLevel.NONE)
+    private final ArrayBlockingQueue<Request> queue;
+
+    @Getter(AccessLevel.NONE)
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    @Getter(AccessLevel.NONE)
+    private volatile boolean closed;
+
+    private record Request(
+            Card card,
+            Rating rating,
+            Instant reviewDatetime,
+            Integer reviewDuration,
+            CompletableFuture<CardAndReviewLog> future) {}
+
+    private AsyncScheduler(@NonNull Builder builder) {
+
+        this.scheduler = builder.scheduler;
+        this.executor = builder.executor;
+        this.queueCapacity = builder.queueCapacity;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.batchWindow = builder.batchWindow;
+        this.queue = new ArrayBlockingQueue<>(builder.queueCapacity);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Setter
+    @Accessors(fluent = true, chain = true)
+    public static class Builder {
+
+        private Scheduler scheduler = Scheduler.builder().build();
+        private Executor executor = ForkJoinPool.commonPool();
+        private int queueCapacity = 1024;
+        private int maxBatchSize = 64;
+        private Duration batchWindow = Duration.ZERO;
+
+        public AsyncScheduler build() {
+
+            if (this.scheduler == null || this.executor == null || this.batchWindow == null) {
+                throw new IllegalArgumentException(
+                        "scheduler, executor and batchWindow must not be null");
+            }
+            if (this.queueCapacity < 1 || this.maxBatchSize < 1) {
+                throw new IllegalArgumentException(
+                        "queueCapacity and maxBatchSize must be positive");
+            }
+            if (this.batchWindow.isNegative()) {
+                throw new IllegalArgumentException("batchWindow must not be negative");
+            }
+            // the drain task blocks for up to batchWindow waiting for more reviews, which would
+            // tie up a thread of the shared common pool
+            if (!this.batchWindow.isZero() && this.executor == ForkJoinPool.commonPool()) {
+                throw new IllegalArgumentException(
+                        "a non-zero batchWindow requires a dedicated executor");
+            }
+
+            return new AsyncScheduler(this);
+        }
+    }
+
+    /*
+    a null reviewDatetime is taken as the time the review is submitted
+    */
+    public CompletableFuture<CardAndReviewLog> reviewAsync(
+            @NonNull Card card,
+            @NonNull Rating rating,
+            Instant reviewDatetime,
+            Integer reviewDuration) {
+
+        if (reviewDatetime == null) {
+            reviewDatetime = Instant.now();
+        }
+
+        if (this.closed) {
+            return CompletableFuture.failedFuture(
+                    new RejectedExecutionException("AsyncScheduler is closed"));
+        }
+
+        CompletableFuture<CardAndReviewLog> future = new CompletableFuture<>();
+        if (!this.queue.offer(new Request(card, rating, reviewDatetime, reviewDuration, future))) {
+            return CompletableFuture.failedFuture(
+                    new RejectedExecutionException("review queue is full"));
+        }
+
+        startDraining();
+
+        return future;
+    }
+
+    public CompletableFuture<CardAndReviewLog> reviewAsync(
+            Card card, Rating rating, Instant reviewDatetime) {
+
+        return reviewAsync(card, rating, reviewDatetime, null);
+    }
+
+    public CompletableFuture<CardAndReviewLog> reviewAsync(Card card, Rating rating) {
+
+        return reviewAsync(card, rating, null, null);
+    }
+
+    /*
+    number of reviews waiting to be drained
+    */
+    public int getQueueSize() {
+        return this.queue.size();
+    }
+
+    public int getRemainingCapacity() {
+        return this.queue.remainingCapacity();
+    }
+
+    public boolean isClosed() {
+        return this.closed;
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+    }
+
+    private void startDraining() {
+
+        if (!this.draining.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            this.executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+
+            this.draining.set(false);
+
+            Request request;
+            while ((request = this.queue.poll()) != null) {
+                request.future().completeExceptionally(e);
+            }
+        }
+    }
+
+    private void drain() {
+
+        List<Request> batch = new ArrayList<>(Math.min(this.maxBatchSize, this.queueCapacity));
+
+        try {
+            while (true) {
+
+                try {
+                    takeBatch(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                if (batch.isEmpty()) {
+
+                    this.draining.set(false);
+
+                    // a review may have been queued after the last poll but before draining was
+                    // reset
+                    if (this.queue.isEmpty() || !this.draining.compareAndSet(false, true)) {
+                        return;
+                    }
+                    continue;
+                }
+
+                review(batch);
+                batch.clear();
+            }
+        } catch (Throwable t) {
+
+            // an error escaping the per-card handling, e.g. one thrown by a listener, fails the
+            // current batch but must not leave the queue without a drain task
+            for (Request request : batch) {
+                request.future().completeExceptionally(t);
+            }
+            this.draining.set(false);
+            if (!this.queue.isEmpty()) {
+                startDraining();
+            }
+            throw t;
+        }
+    }
+
+    private void takeBatch(List<Request> batch) throws InterruptedException {
+
+        this.queue.drainTo(batch, this.maxBatchSize);
+
+        if (batch.isEmpty() || this.batchWindow.isZero()) {
+            return;
+        }
+
+        long deadline = System.nanoTime() + this.batchWindow.toNanos();
+        while (batch.size() < this.maxBatchSize) {
+
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+
+            Request request = this.queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (request == null) {
+                return;
+            }
+            batch.add(request);
+            this.queue.drainTo(batch, this.maxBatchSize - batch.size());
+        }
+    }
+
+    private void review(List<Request> batch) {
+
+        int size = batch.size();
+        List<Card> cards = new ArrayList<>(size);
+        Rating[] ratings = new Rating[size];
+        Instant[] reviewDatetimes = new Instant[size];
+        Integer[] reviewDurations = new Integer[size];
+
+        for (int i = 0; i < size; i++) {
+
+            Request request = batch.get(i);
+            cards.add(request.card());
+            ratings[i] = request.rating();
+            reviewDatetimes[i] = request.reviewDatetime();
+            reviewDurations[i] = request.reviewDuration();
+        }
+
+        // each card is reviewed exactly once, a failing review fails only its own future
+        RuntimeException[] failures = new RuntimeException[size];
+        ReviewBatch reviewBatch =
+                this.scheduler.reviewCards(
+                        cards, ratings, reviewDatetimes, reviewDurations, failures);
+
+        for (int i = 0; i < size; i++) {
+
+            CompletableFuture<CardAndReviewLog> future = batch.get(i).future();
+            if (failures[i] != null) {
+                future.completeExceptionally(failures[i]);
+            } else {
+                future.complete(
+                        new CardAndReviewLog(reviewBatch.getCard(i), reviewBatch.getReviewLog(i)));
+            }
+        }
+    }
+}
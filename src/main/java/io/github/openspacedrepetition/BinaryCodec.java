@@ -0,0 +1,522 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.NonNull;
+
+/*
+compact binary encoding of Card, ReviewLog and Scheduler, as an alternative to json
+
+an encoding starts with a 4 byte header: the magic bytes 'F' 'S', the format version and the
+record type, followed by one record or, for arrays, a varint count and that many records.
+ints and longs are zigzag varints, State and Rating are stored as their value in one byte,
+Instants and Durations as varint seconds and nanoseconds (so they round trip exactly), and
+doubles as 8 bytes. nullable fields are marked in a leading flags byte
+
+writeCard, readCard and the like read and write single records without a header directly to
+and from a ByteBuffer, advancing its position, for embedding records in a larger buffer
+*/
+public final class BinaryCodec {
+
+    public static final int VERSION = 1;
+
+    private static final byte MAGIC_0 = 'F';
+    private static final byte MAGIC_1 = 'S';
+    private static final int HEADER_SIZE = 4;
+
+    private static final byte TYPE_CARD = 1;
+    private static final byte TYPE_REVIEW_LOG = 2;
+    private static final byte TYPE_SCHEDULER = 3;
+    private static final byte TYPE_ARRAY = (byte) 0x80;
+
+    // the largest array the JVM reliably allocates
+    private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+
+    // arrays are encoded into a buffer sized for up to this many records that grows as needed
+    private static final int INITIAL_ARRAY_RECORDS = 1 << 16;
+
+    private static final int MAX_VARINT_SIZE = 10;
+    private static final int MAX_INSTANT_SIZE = 2 * MAX_VARINT_SIZE;
+
+    // flags byte + cardId + state + step + stability + difficulty + due + lastReview
+    private static final int MAX_CARD_SIZE =
+            1 + 3 * MAX_VARINT_SIZE + 2 * Double.BYTES + 2 * MAX_INSTANT_SIZE;
+
+    // flags byte + cardId + rating + reviewDatetime + reviewDuration
+    private static final int MAX_REVIEW_LOG_SIZE = 2 + 2 * MAX_VARINT_SIZE + MAX_INSTANT_SIZE;
+
+    private static final int STEP = 1;
+    private static final int STABILITY = 1 << 1;
+    private static final int DIFFICULTY = 1 << 2;
+    private static final int DUE = 1 << 3;
+    private static final int LAST_REVIEW = 1 << 4;
+
+    private static final int REVIEW_DURATION = 1;
+
+    private static final int ENABLE_FUZZING = 1;
+    private static final int DETERMINISTIC_FUZZING = 1 << 1;
+    private static final int TIME_ZONE = 1 << 2;
+
+    private static final State[] STATES = State.values();
+    private static final Rating[] RATINGS = Rating.values();
+
+    private BinaryCodec() {}
+
+    public static byte[] encode(@NonNull Card card) {
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + MAX_CARD_SIZE);
+        writeHeader(buffer, TYPE_CARD);
+        writeCard(buffer, card);
+
+        return toByteArray(buffer);
+    }
+
+    public static byte[] encode(@NonNull ReviewLog reviewLog) {
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + MAX_REVIEW_LOG_SIZE);
+        writeHeader(buffer, TYPE_REVIEW_LOG);
+        writeReviewLog(buffer, reviewLog);
+
+        return toByteArray(buffer);
+    }
+
+    public static byte[] encode(@NonNull Scheduler scheduler) {
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + maxSchedulerSize(scheduler));
+        writeHeader(buffer, TYPE_SCHEDULER);
+        writeScheduler(buffer, scheduler);
+
+        return toByteArray(buffer);
+    }
+
+    public static byte[] encodeCards(@NonNull List<Card> cards) {
+
+        ByteBuffer buffer = allocateArray(cards.size(), MAX_CARD_SIZE);
+        writeHeader(buffer, (byte) (TYPE_ARRAY | TYPE_CARD));
+        writeVarint(buffer, cards.size());
+        for (Card card : cards) {
+            buffer = ensureRemaining(buffer, MAX_CARD_SIZE);
+            writeCard(buffer, card);
+        }
+
+        return toByteArray(buffer);
+    }
+
+    public static byte[] encodeReviewLogs(@NonNull List<ReviewLog> reviewLogs) {
+
+        ByteBuffer buffer = allocateArray(reviewLogs.size(), MAX_REVIEW_LOG_SIZE);
+        writeHeader(buffer, (byte) (TYPE_ARRAY | TYPE_REVIEW_LOG));
+        writeVarint(buffer, reviewLogs.size());
+        for (ReviewLog reviewLog : reviewLogs) {
+            buffer = ensureRemaining(buffer, MAX_REVIEW_LOG_SIZE);
+            writeReviewLog(buffer, reviewLog);
+        }
+
+        return toByteArray(buffer);
+    }
+
+    public static Card decodeCard(@NonNull byte[] bytes) {
+
+        return decodeCard(ByteBuffer.wrap(bytes));
+    }
+
+    /*
+    the decode methods taking a ByteBuffer read from its position and leave it after the record
+    */
+    public static Card decodeCard(@NonNull ByteBuffer buffer) {
+
+        readHeader(buffer, TYPE_CARD);
+
+        return readCard(buffer);
+    }
+
+    public static ReviewLog decodeReviewLog(@NonNull byte[] bytes) {
+
+        return decodeReviewLog(ByteBuffer.wrap(bytes));
+    }
+
+    public static ReviewLog decodeReviewLog(@NonNull ByteBuffer buffer) {
+
+        readHeader(buffer, TYPE_REVIEW_LOG);
+
+        return readReviewLog(buffer);
+    }
+
+    public static Scheduler decodeScheduler(@NonNull byte[] bytes) {
+
+        return decodeScheduler(ByteBuffer.wrap(bytes));
+    }
+
+    public static Scheduler decodeScheduler(@NonNull ByteBuffer buffer) {
+
+        readHeader(buffer, TYPE_SCHEDULER);
+
+        return readScheduler(buffer);
+    }
+
+    public static List<Card> decodeCards(@NonNull byte[] bytes) {
+
+        return decodeCards(ByteBuffer.wrap(bytes));
+    }
+
+    public static List<Card> decodeCards(@NonNull ByteBuffer buffer) {
+
+        readHeader(buffer, (byte) (TYPE_ARRAY | TYPE_CARD));
+
+        int size = readCount(buffer);
+        List<Card> cards = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            cards.add(readCard(buffer));
+        }
+
+        return cards;
+    }
+
+    public static List<ReviewLog> decodeReviewLogs(@NonNull byte[] bytes) {
+
+        return decodeReviewLogs(ByteBuffer.wrap(bytes));
+    }
+
+    public static List<ReviewLog> decodeReviewLogs(@NonNull ByteBuffer buffer) {
+
+        readHeader(buffer, (byte) (TYPE_ARRAY | TYPE_REVIEW_LOG));
+
+        int size = readCount(buffer);
+        List<ReviewLog> reviewLogs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            reviewLogs.add(readReviewLog(buffer));
+        }
+
+        return reviewLogs;
+    }
+
+    public static void writeCard(@NonNull ByteBuffer buffer, @NonNull Card card) {
+
+        int flags = 0;
+        flags |= card.getStep() != null ? STEP : 0;
+        flags |= card.getStability() != null ? STABILITY : 0;
+        flags |= card.getDifficulty() != null ? DIFFICULTY : 0;
+        flags |= card.getDue() != null ? DUE : 0;
+        flags |= card.getLastReview() != null ? LAST_REVIEW : 0;
+
+        buffer.put((byte) flags);
+        writeVarint(buffer, card.getCardId());
+        buffer.put((byte) card.getState().getValue());
+        if (card.getStep() != null) {
+            writeVarint(buffer, card.getStep());
+        }
+        if (card.getStability() != null) {
+            buffer.putDouble(card.getStability());
+        }
+        if (card.getDifficulty() != null) {
+            buffer.putDouble(card.getDifficulty());
+        }
+        if (card.getDue() != null) {
+            writeInstant(buffer, card.getDue());
+        }
+        if (card.getLastReview() != null) {
+            writeInstant(buffer, card.getLastReview());
+        }
+    }
+
+    public static Card readCard(@NonNull ByteBuffer buffer) {
+
+        int flags = buffer.get();
+
+        Card.Builder builder =
+                Card.builder().cardId((int) readVarint(buffer)).state(readState(buffer));
+        if ((flags & STEP) != 0) {
+            builder.step((int) readVarint(buffer));
+        }
+        if ((flags & STABILITY) != 0) {
+            builder.stability(buffer.getDouble());
+        }
+        if ((flags & DIFFICULTY) != 0) {
+            builder.difficulty(buffer.getDouble());
+        }
+        if ((flags & DUE) != 0) {
+            builder.due(readInstant(buffer));
+        }
+        if ((flags & LAST_REVIEW) != 0) {
+            builder.lastReview(readInstant(buffer));
+        }
+
+        Card card = builder.build();
+
+        // the builder fills in a step and due date the encoded card may not have had
+        if ((flags & STEP) == 0) {
+            card.setStep(null);
+        }
+        if ((flags & DUE) == 0) {
+            card.setDue(null);
+        }
+
+        return card;
+    }
+
+    public static void writeReviewLog(@NonNull ByteBuffer buffer, @NonNull ReviewLog reviewLog) {
+
+        buffer.put((byte) (reviewLog.reviewDuration() != null ? REVIEW_DURATION : 0));
+        writeVarint(buffer, reviewLog.cardId());
+        buffer.put((byte) reviewLog.rating().getValue());
+        writeInstant(buffer, reviewLog.reviewDatetime());
+        if (reviewLog.reviewDuration() != null) {
+            writeVarint(buffer, reviewLog.reviewDuration());
+        }
+    }
+
+    public static ReviewLog readReviewLog(@NonNull ByteBuffer buffer) {
+
+        int flags = buffer.get();
+        int cardId = (int) readVarint(buffer);
+        Rating rating = readRating(buffer);
+        Instant reviewDatetime = readInstant(buffer);
+        Integer reviewDuration = (flags & REVIEW_DURATION) != 0 ? (int) readVarint(buffer) : null;
+
+        return new ReviewLog(cardId, rating, reviewDatetime, reviewDuration);
+    }
+
+    public static void writeScheduler(@NonNull ByteBuffer buffer, @NonNull Scheduler scheduler) {
+
+        double[] parameters = scheduler.getParameters();
+        writeVarint(buffer, parameters.length);
+        for (double parameter : parameters) {
+            buffer.putDouble(parameter);
+        }
+        buffer.putDouble(scheduler.getDesiredRetention());
+        writeDurations(buffer, scheduler.getLearningSteps());
+        writeDurations(buffer, scheduler.getRelearningSteps());
+        writeVarint(buffer, scheduler.getMaximumInterval());
+        writeVarint(buffer, scheduler.getRandomSeedNumber());
+
+        int flags = 0;
+        flags |= scheduler.isEnableFuzzing() ? ENABLE_FUZZING : 0;
+        flags |= scheduler.isDeterministicFuzzing() ? DETERMINISTIC_FUZZING : 0;
+        flags |= scheduler.getTimeZone() != null ? TIME_ZONE : 0;
+        buffer.put((byte) flags);
+
+        if (scheduler.getTimeZone() != null) {
+            byte[] timeZone = scheduler.getTimeZone().getId().getBytes(StandardCharsets.UTF_8);
+            writeVarint(buffer, timeZone.length);
+            buffer.put(timeZone);
+        }
+        writeVarint(buffer, scheduler.getDayStartOffset().getSeconds());
+        writeVarint(buffer, scheduler.getDayStartOffset().getNano());
+    }
+
+    public static Scheduler readScheduler(@NonNull ByteBuffer buffer) {
+
+        double[] parameters = new double[readCount(buffer)];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = buffer.getDouble();
+        }
+        double desiredRetention = buffer.getDouble();
+        Duration[] learningSteps = readDurations(buffer);
+        Duration[] relearningSteps = readDurations(buffer);
+        int maximumInterval = (int) readVarint(buffer);
+        int randomSeedNumber = (int) readVarint(buffer);
+        int flags = buffer.get();
+
+        ZoneId timeZone = null;
+        if ((flags & TIME_ZONE) != 0) {
+            byte[] timeZoneId = new byte[readCount(buffer)];
+            buffer.get(timeZoneId);
+            timeZone = ZoneId.of(new String(timeZoneId, StandardCharsets.UTF_8));
+        }
+        long seconds = readVarint(buffer);
+        Duration dayStartOffset = Duration.ofSeconds(seconds, readVarint(buffer));
+
+        return Scheduler.builder()
+                .parameters(parameters)
+                .desiredRetention(desiredRetention)
+                .learningSteps(learningSteps)
+                .relearningSteps(relearningSteps)
+                .maximumInterval(maximumInterval)
+                .randomSeedNumber(randomSeedNumber)
+                .enableFuzzing((flags & ENABLE_FUZZING) != 0)
+                .deterministicFuzzing((flags & DETERMINISTIC_FUZZING) != 0)
+                .timeZone(timeZone)
+                .dayStartOffset(dayStartOffset)
+                .build();
+    }
+
+    private static int maxSchedulerSize(Scheduler scheduler) {
+
+        return MAX_VARINT_SIZE
+                + (scheduler.getParameters().length + 1) * Double.BYTES
+                + 2 * MAX_VARINT_SIZE
+                + (scheduler.getLearningSteps().length + scheduler.getRelearningSteps().length)
+                        * MAX_INSTANT_SIZE
+                + 2 * MAX_VARINT_SIZE
+                + 1
+                + (scheduler.getTimeZone() == null
+                        ? 0
+                        : MAX_VARINT_SIZE + 4 * scheduler.getTimeZone().getId().length())
+                + MAX_INSTANT_SIZE;
+    }
+
+    private static void writeHeader(ByteBuffer buffer, byte type) {
+
+        buffer.put(MAGIC_0).put(MAGIC_1).put((byte) VERSION).put(type);
+    }
+
+    private static void readHeader(ByteBuffer buffer, byte type) {
+
+        if (buffer.remaining() < HEADER_SIZE
+                || buffer.get() != MAGIC_0
+                || buffer.get() != MAGIC_1) {
+            throw new IllegalArgumentException("not a binary FSRS encoding");
+        }
+
+        int version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unsupported encoding version " + version);
+        }
+
+        byte actualType = buffer.get();
+        if (actualType != type) {
+            throw new IllegalArgumentException(
+                    "expected record type " + type + " but found " + actualType);
+        }
+    }
+
+    /*
+    a buffer for the header, count and the first records of an array. the size is computed in
+    long since count * maxRecordSize overflows an int for large arrays
+    */
+    private static ByteBuffer allocateArray(int count, int maxRecordSize) {
+
+        return ByteBuffer.allocate(
+                (int)
+                        (HEADER_SIZE
+                                + MAX_VARINT_SIZE
+                                + (long) Math.min(count, INITIAL_ARRAY_RECORDS) * maxRecordSize));
+    }
+
+    /*
+    the buffer, or a copy with twice the capacity (at most MAX_BUFFER_SIZE) when fewer than
+    size bytes remain
+    */
+    private static ByteBuffer ensureRemaining(ByteBuffer buffer, int size) {
+
+        if (buffer.remaining() >= size) {
+            return buffer;
+        }
+
+        long required = (long) buffer.position() + size;
+        if (required > MAX_BUFFER_SIZE) {
+            throw new IllegalArgumentException(
+                    "encoding is larger than the maximum array size of " + MAX_BUFFER_SIZE);
+        }
+
+        long capacity = Math.min(Math.max(2L * buffer.capacity(), required), MAX_BUFFER_SIZE);
+        ByteBuffer grown = ByteBuffer.allocate((int) capacity);
+        grown.put(buffer.flip());
+
+        return grown;
+    }
+
+    private static byte[] toByteArray(ByteBuffer buffer) {
+
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip().get(bytes);
+
+        return bytes;
+    }
+
+    static void writeVarint(ByteBuffer buffer, long value) {
+
+        // zigzag, so small negative values are small too
+        long zigzag = (value << 1) ^ (value >> 63);
+
+        while ((zigzag & ~0x7FL) != 0) {
+            buffer.put((byte) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        buffer.put((byte) zigzag);
+    }
+
+    static long readVarint(ByteBuffer buffer) {
+
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+
+            byte b = buffer.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    private static int readCount(ByteBuffer buffer) {
+
+        long count = readVarint(buffer);
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IllegalArgumentException("invalid array length " + count);
+        }
+
+        return (int) count;
+    }
+
+    private static void writeInstant(ByteBuffer buffer, Instant instant) {
+
+        writeVarint(buffer, instant.getEpochSecond());
+        writeVarint(buffer, instant.getNano());
+    }
+
+    private static Instant readInstant(ByteBuffer buffer) {
+
+        long epochSecond = readVarint(buffer);
+
+        return Instant.ofEpochSecond(epochSecond, readVarint(buffer));
+    }
+
+    private static void writeDurations(ByteBuffer buffer, Duration[] durations) {
+
+        writeVarint(buffer, durations.length);
+        for (Duration duration : durations) {
+            writeVarint(buffer, duration.getSeconds());
+            writeVarint(buffer, duration.getNano());
+        }
+    }
+
+    private static Duration[] readDurations(ByteBuffer buffer) {
+
+        Duration[] durations = new Duration[readCount(buffer)];
+        for (int i = 0; i < durations.length; i++) {
+            long seconds = readVarint(buffer);
+            durations[i] = Duration.ofSeconds(seconds, readVarint(buffer));
+        }
+
+        return durations;
+    }
+
+    private static State readState(ByteBuffer buffer) {
+
+        int value = buffer.get();
+        if (value < 1 || value > STATES.length) {
+            throw new IllegalArgumentException("invalid state " + value);
+        }
+
+        return STATES[value - 1];
+    }
+
+    private static Rating readRating(ByteBuffer buffer) {
+
+        int value = buffer.get();
+        if (value < 1 || value > RATINGS.length) {
+            throw new IllegalArgumentException("invalid rating " + value);
+        }
+
+        return RATINGS[value - 1];
+    }
+}
@@ -1,13 +1,14 @@
 /* (C)2025 */
 package io.github.openspacedrepetition;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
@@ -46,6 +47,19 @@ public class Card {
         return new Builder();
     }
 
+    private static volatile CardIdGenerator defaultCardIdGenerator = CardIdGenerator.monotonic();
+
+    public static CardIdGenerator getDefaultCardIdGenerator() {
+        return defaultCardIdGenerator;
+    }
+
+    /*
+    sets the generator used for cards built without a cardId or a cardIdGenerator of their own
+    */
+    public static void setDefaultCardIdGenerator(@NonNull CardIdGenerator cardIdGenerator) {
+        defaultCardIdGenerator = cardIdGenerator;
+    }
+
     @Setter
     @Accessors(fluent = true, chain = true)
     @JsonPOJOBuilder(withPrefix = "")
@@ -59,16 +73,16 @@ public class Card {
         private Double difficulty = null;
         private Instant due = null;
         private Instant lastReview = null;
+        private CardIdGenerator cardIdGenerator = null;
 
         public Card build() {
 
             if (this.cardId == null) {
-                this.cardId = (int) Instant.now().toEpochMilli();
-                try {
-                    Thread.sleep(1);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt(); // restore interrupted status
-                }
+                CardIdGenerator generator =
+                        this.cardIdGenerator == null
+                                ? defaultCardIdGenerator
+                                : this.cardIdGenerator;
+                this.cardId = generator.nextCardId();
             }
 
             if (this.state == State.LEARNING && this.step == null) {
@@ -96,25 +110,38 @@ public class Card {
 
     public String toJson() {
 
-        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
-        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-
-        try {
-            return mapper.writeValueAsString(this);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException();
-        }
+        return Json.write(Json.CARD_WRITER, this);
     }
 
     public static Card fromJson(@NonNull String json) {
 
-        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
-        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return Json.read(Json.CARD_READER, json);
+    }
 
-        try {
-            return mapper.readValue(json, Card.class);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException(e);
-        }
+    public static String toJson(@NonNull List<Card> cards) {
+
+        return Json.write(Json.CARD_LIST_WRITER, cards);
+    }
+
+    public static List<Card> listFromJson(@NonNull String json) {
+
+        return Json.read(Json.CARD_LIST_READER, json);
+    }
+
+    /*
+    writes the cards to out as a json array, one element at a time
+    */
+    public static void toJson(@NonNull Iterable<Card> cards, @NonNull Writer out)
+            throws IOException {
+
+        Json.writeArray(Json.CARD_WRITER, cards.iterator(), out);
+    }
+
+    /*
+    lazily reads a json array of cards, closing the stream closes in
+    */
+    public static Stream<Card> streamFromJson(@NonNull Reader in) {
+
+        return Json.readArray(Json.CARD_READER, in);
     }
 }
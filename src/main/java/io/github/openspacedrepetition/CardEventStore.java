@@ -0,0 +1,245 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.Getter;
+import lombok.NonNull;
+
+/*
+keeps the review logs of each card together with snapshots of the card taken every
+snapshotInterval reviews, so a card is rebuilt from its latest snapshot and at most
+snapshotInterval - 1 later review logs instead of its whole history
+
+a card is the result of reviewing a new card with its review logs in reviewDatetime order
+through Scheduler.reviewCard, except that replayed reviews are not reported to the
+scheduler's listener. review logs may be appended out of order, in which case the snapshots
+after the inserted log are dropped and taken again. so that every rebuild gives the same card
+the Scheduler must use deterministicFuzzing or no fuzzing
+
+getSnapshots and load move a card's snapshots between processes (e.g. encoded with
+BinaryCodec.encodeCards in a shared store), so a card can be rebuilt elsewhere without
+replaying its whole history
+
+all methods are thread-safe, and cards are only locked against each other per card. an
+append running concurrently with a load of the same card is either replaced by the load or
+applied on top of it, never lost after it
+*/
+public class CardEventStore {
+
+    private final Scheduler scheduler;
+    @Getter private final int snapshotInterval;
+    private final ConcurrentHashMap<Integer, History> histories = new ConcurrentHashMap<>();
+
+    /*
+    the review logs of one card in reviewDatetime order, and snapshots.get(k) the card after
+    its first (k + 1) * snapshotInterval review logs
+    */
+    private static final class History {
+
+        private final List<ReviewLog> reviewLogs = new ArrayList<>();
+        private final List<Card> snapshots = new ArrayList<>();
+    }
+
+    public CardEventStore(@NonNull Scheduler scheduler, int snapshotInterval) {
+
+        if (snapshotInterval < 1) {
+            throw new IllegalArgumentException("snapshotInterval must be positive");
+        }
+        if (!scheduler.hasReproducibleFuzz()) {
+            throw new IllegalArgumentException(
+                    "scheduler must use deterministicFuzzing or no fuzzing");
+        }
+
+        this.scheduler = scheduler;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    public void append(@NonNull ReviewLog reviewLog) {
+
+        History history =
+                this.histories.computeIfAbsent(reviewLog.cardId(), cardId -> new History());
+
+        synchronized (history) {
+            List<ReviewLog> reviewLogs = history.reviewLogs;
+
+            // usually the new log is the latest one
+            int index = reviewLogs.size();
+            while (index > 0
+                    && reviewLogs
+                            .get(index - 1)
+                            .reviewDatetime()
+                            .isAfter(reviewLog.reviewDatetime())) {
+                index--;
+            }
+            reviewLogs.add(index, reviewLog);
+
+            int validSnapshots = index / this.snapshotInterval;
+            history.snapshots.subList(validSnapshots, history.snapshots.size()).clear();
+
+            while (reviewLogs.size() >= (history.snapshots.size() + 1) * this.snapshotInterval) {
+                history.snapshots.add(
+                        replay(history, (history.snapshots.size() + 1) * this.snapshotInterval));
+            }
+        }
+    }
+
+    public void appendAll(@NonNull Iterable<ReviewLog> reviewLogs) {
+
+        for (ReviewLog reviewLog : reviewLogs) {
+            append(reviewLog);
+        }
+    }
+
+    /*
+    the current card, or null if no review logs were appended for cardId
+    */
+    public Card getCard(int cardId) {
+
+        History history = this.histories.get(cardId);
+        if (history == null) {
+            return null;
+        }
+
+        synchronized (history) {
+            return replay(history, history.reviewLogs.size());
+        }
+    }
+
+    public List<ReviewLog> getReviewLogs(int cardId) {
+
+        History history = this.histories.get(cardId);
+        if (history == null) {
+            return Collections.emptyList();
+        }
+
+        synchronized (history) {
+            return List.copyOf(history.reviewLogs);
+        }
+    }
+
+    /*
+    the card's snapshots, where snapshot k is the card after its first
+    (k + 1) * snapshotInterval review logs
+    */
+    public List<Card> getSnapshots(int cardId) {
+
+        History history = this.histories.get(cardId);
+        if (history == null) {
+            return Collections.emptyList();
+        }
+
+        synchronized (history) {
+            List<Card> snapshots = new ArrayList<>(history.snapshots.size());
+            for (Card snapshot : history.snapshots) {
+                snapshots.add(new Card(snapshot));
+            }
+
+            return snapshots;
+        }
+    }
+
+    /*
+    replaces the history of the card of reviewLogs with reviewLogs, in reviewDatetime order, and
+    snapshots taken by getSnapshots from a store with the same scheduler and snapshotInterval.
+    snapshots may be a prefix of them, the missing ones are taken again
+    */
+    public void load(@NonNull List<ReviewLog> reviewLogs, @NonNull List<Card> snapshots) {
+
+        if (reviewLogs.isEmpty()) {
+            throw new IllegalArgumentException("reviewLogs must not be empty");
+        }
+
+        int cardId = reviewLogs.get(0).cardId();
+        for (int i = 0; i < reviewLogs.size(); i++) {
+
+            ReviewLog reviewLog = reviewLogs.get(i);
+            if (reviewLog.cardId() != cardId) {
+                throw new IllegalArgumentException("reviewLogs must all belong to one card");
+            }
+            if (i > 0
+                    && reviewLog
+                            .reviewDatetime()
+                            .isBefore(reviewLogs.get(i - 1).reviewDatetime())) {
+                throw new IllegalArgumentException("reviewLogs must be in reviewDatetime order");
+            }
+        }
+        if (snapshots.size() > reviewLogs.size() / this.snapshotInterval) {
+            throw new IllegalArgumentException("more snapshots than reviewLogs");
+        }
+        for (Card snapshot : snapshots) {
+            if (snapshot.getCardId() != cardId) {
+                throw new IllegalArgumentException("snapshots must belong to the reviewed card");
+            }
+        }
+
+        // the missing snapshots are taken on a private copy, which needs no lock
+        History loaded = new History();
+        loaded.reviewLogs.addAll(reviewLogs);
+        for (Card snapshot : snapshots) {
+            loaded.snapshots.add(new Card(snapshot));
+        }
+        while (reviewLogs.size() >= (loaded.snapshots.size() + 1) * this.snapshotInterval) {
+            loaded.snapshots.add(
+                    replay(loaded, (loaded.snapshots.size() + 1) * this.snapshotInterval));
+        }
+
+        // the card's History is filled in place rather than replaced, since an append may
+        // already hold it from computeIfAbsent and would otherwise add its log to a History
+        // that is no longer in the map
+        History history = this.histories.computeIfAbsent(cardId, id -> new History());
+        synchronized (history) {
+            history.reviewLogs.clear();
+            history.reviewLogs.addAll(loaded.reviewLogs);
+            history.snapshots.clear();
+            history.snapshots.addAll(loaded.snapshots);
+        }
+    }
+
+    public int getSnapshotCount(int cardId) {
+
+        History history = this.histories.get(cardId);
+        if (history == null) {
+            return 0;
+        }
+
+        synchronized (history) {
+            return history.snapshots.size();
+        }
+    }
+
+    /*
+    number of cards with review logs
+    */
+    public int size() {
+        return this.histories.size();
+    }
+
+    /*
+    the card after its first end review logs, from the latest snapshot at or before end
+    */
+    private Card replay(History history, int end) {
+
+        int snapshot = Math.min(end / this.snapshotInterval, history.snapshots.size());
+
+        Card card;
+        int start;
+        if (snapshot == 0) {
+            ReviewLog first = history.reviewLogs.get(0);
+            card = Card.builder().cardId(first.cardId()).due(first.reviewDatetime()).build();
+            start = 0;
+        } else {
+            card = history.snapshots.get(snapshot - 1);
+            start = snapshot * this.snapshotInterval;
+        }
+
+        for (int i = start; i < end; i++) {
+            card = this.scheduler.replayReview(card, history.reviewLogs.get(i));
+        }
+
+        // snapshots are never handed out, since cards are mutable
+        return start == end ? new Card(card) : card;
+    }
+}
@@ -0,0 +1,81 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+supplies the cardId of cards built without one
+
+Card.Builder uses the generator set with cardIdGenerator, or else the one set with
+Card.setDefaultCardIdGenerator, which is monotonic() unless changed. generators must be
+thread-safe
+*/
+@FunctionalInterface
+public interface CardIdGenerator {
+
+    int nextCardId();
+
+    /*
+    ids follow the clock in milliseconds (truncated to an int, like the original card ids), but
+    are handed out one after another without waiting when cards are created faster than one per
+    millisecond, so no two ids from the same generator are equal
+    */
+    static CardIdGenerator monotonic() {
+
+        AtomicInteger lastCardId = new AtomicInteger((int) System.currentTimeMillis() - 1);
+
+        return () ->
+                lastCardId.updateAndGet(
+                        last -> {
+                            int now = (int) System.currentTimeMillis();
+
+                            // compare by difference so the ids keep increasing across int overflow
+                            return now - last > 0 ? now : last + 1;
+                        });
+    }
+
+    /*
+    ids start, start + 1, start + 2, ...
+    */
+    static CardIdGenerator sequential(int start) {
+
+        AtomicInteger nextCardId = new AtomicInteger(start);
+
+        return nextCardId::getAndIncrement;
+    }
+
+    /*
+    ids that are unique across processes: the top nodeBits bits hold nodeId and the remaining
+    bits a per-node sequence starting at firstSequence. a restarted node should resume from the
+    sequence after its last issued id, the generator throws once the sequence is exhausted
+    */
+    static CardIdGenerator nodeSequence(int nodeId, int nodeBits, int firstSequence) {
+
+        if (nodeBits < 1 || nodeBits > 31) {
+            throw new IllegalArgumentException("nodeBits must be between 1 and 31");
+        }
+
+        int sequenceBits = Integer.SIZE - nodeBits;
+        long maxSequence = (1L << sequenceBits) - 1;
+
+        if (nodeId < 0 || nodeId >= (1L << nodeBits)) {
+            throw new IllegalArgumentException(
+                    "nodeId must be between 0 and " + ((1L << nodeBits) - 1));
+        }
+        if (firstSequence < 0 || firstSequence > maxSequence) {
+            throw new IllegalArgumentException(
+                    "firstSequence must be between 0 and " + maxSequence);
+        }
+
+        AtomicInteger nextSequence = new AtomicInteger(firstSequence);
+
+        return () -> {
+            int sequence = nextSequence.getAndIncrement();
+            if (sequence < 0 || sequence > maxSequence) {
+                throw new IllegalStateException("card id sequence exhausted for node " + nodeId);
+            }
+
+            return (nodeId << sequenceBits) | sequence;
+        };
+    }
+}
@@ -0,0 +1,88 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import java.time.Instant;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.ToString;
+
+/*
+a mutable, reusable primitive view of a Card's scheduling state for use with
+Scheduler.reviewCard(CardState, Rating, long)
+
+fields that are nullable on Card are encoded with sentinel values:
+step -> NO_STEP, stability/difficulty -> NaN, lastReview -> NO_LAST_REVIEW
+*/
+@Getter
+@Setter
+@ToString
+@EqualsAndHashCode
+public class CardState {
+
+    public static final int NO_STEP = -1;
+    public static final long NO_LAST_REVIEW = Long.MIN_VALUE;
+
+    private int cardId;
+    private State state;
+    private int step;
+    private double stability;
+    private double difficulty;
+    private long dueEpochMillis;
+    private long lastReviewEpochMillis;
+
+    public CardState() {
+
+        this.state = State.LEARNING;
+        this.step = 0;
+        this.stability = Double.NaN;
+        this.difficulty = Double.NaN;
+        this.lastReviewEpochMillis = NO_LAST_REVIEW;
+    }
+
+    public CardState(@NonNull Card card) {
+
+        set(card);
+    }
+
+    public CardState set(@NonNull Card card) {
+
+        this.cardId = card.getCardId();
+        this.state = card.getState();
+        this.step = card.getStep() == null ? NO_STEP : card.getStep();
+        this.stability = card.getStability() == null ? Double.NaN : card.getStability();
+        this.difficulty = card.getDifficulty() == null ? Double.NaN : card.getDifficulty();
+        this.dueEpochMillis = card.getDue().toEpochMilli();
+        this.lastReviewEpochMillis =
+                card.getLastReview() == null ? NO_LAST_REVIEW : card.getLastReview().toEpochMilli();
+
+        return this;
+    }
+
+    public boolean hasStep() {
+        return this.step != NO_STEP;
+    }
+
+    public boolean hasMemoryState() {
+        return !Double.isNaN(this.stability) || !Double.isNaN(this.difficulty);
+    }
+
+    public boolean hasLastReview() {
+        return this.lastReviewEpochMillis != NO_LAST_REVIEW;
+    }
+
+    public Card toCard() {
+
+        return Card.builder()
+                .cardId(this.cardId)
+                .state(this.state)
+                .step(hasStep() ? this.step : null)
+                .stability(Double.isNaN(this.stability) ? null : this.stability)
+                .difficulty(Double.isNaN(this.difficulty) ? null : this.difficulty)
+                .due(Instant.ofEpochMilli(this.dueEpochMillis))
+                .lastReview(
+                        hasLastReview() ? Instant.ofEpochMilli(this.lastReviewEpochMillis) : null)
+                .build();
+    }
+}
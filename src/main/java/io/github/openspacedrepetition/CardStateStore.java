@@ -0,0 +1,31 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+/*
+index-addressed storage of card scheduling state that Scheduler can review in place
+*/
+public interface CardStateStore {
+
+    int size();
+
+    CardState get(int index, CardState target);
+
+    void set(int index, CardState cardState);
+
+    int getCardId(int index);
+
+    State getState(int index);
+
+    double getStability(int index);
+
+    double getDifficulty(int index);
+
+    long getDueEpochMillis(int index);
+
+    long getLastReviewEpochMillis(int index);
+
+    default Card getCard(int index) {
+
+        return get(index, new CardState()).toCard();
+    }
+}
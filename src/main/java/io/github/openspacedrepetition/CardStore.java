@@ -0,0 +1,169 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import java.util.Arrays;
+import java.util.Objects;
+import lombok.NonNull;
+
+/*
+a growable struct-of-arrays store of card scheduling state
+
+each card takes 39 bytes across the parallel primitive arrays, compared to several times that
+for a Card object with its boxed fields and Instants. cards are addressed by their index in the
+store, which is returned by add
+*/
+public class CardStore implements CardStateStore {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+    private static final State[] STATES = State.values();
+
+    private int size;
+
+    private int[] cardIds;
+    private byte[] states;
+    private short[] steps;
+    private double[] stabilities;
+    private double[] difficulties;
+    private long[] dueEpochMillis;
+    private long[] lastReviewEpochMillis;
+
+    public CardStore() {
+
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    public CardStore(int initialCapacity) {
+
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("initialCapacity must not be negative");
+        }
+
+        this.cardIds = new int[initialCapacity];
+        this.states = new byte[initialCapacity];
+        this.steps = new short[initialCapacity];
+        this.stabilities = new double[initialCapacity];
+        this.difficulties = new double[initialCapacity];
+        this.dueEpochMillis = new long[initialCapacity];
+        this.lastReviewEpochMillis = new long[initialCapacity];
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    public int add(@NonNull Card card) {
+
+        return add(new CardState(card));
+    }
+
+    public int add(@NonNull CardState cardState) {
+
+        ensureCapacity(this.size + 1);
+
+        int index = this.size++;
+        set(index, cardState);
+
+        return index;
+    }
+
+    public void ensureCapacity(int minCapacity) {
+
+        int capacity = this.cardIds.length;
+        if (minCapacity <= capacity) {
+            return;
+        }
+
+        int newCapacity = Math.max(minCapacity, capacity + (capacity >> 1));
+
+        this.cardIds = Arrays.copyOf(this.cardIds, newCapacity);
+        this.states = Arrays.copyOf(this.states, newCapacity);
+        this.steps = Arrays.copyOf(this.steps, newCapacity);
+        this.stabilities = Arrays.copyOf(this.stabilities, newCapacity);
+        this.difficulties = Arrays.copyOf(this.difficulties, newCapacity);
+        this.dueEpochMillis = Arrays.copyOf(this.dueEpochMillis, newCapacity);
+        this.lastReviewEpochMillis = Arrays.copyOf(this.lastReviewEpochMillis, newCapacity);
+    }
+
+    @Override
+    public CardState get(int index, @NonNull CardState target) {
+
+        checkIndex(index);
+
+        target.setCardId(this.cardIds[index]);
+        target.setState(STATES[this.states[index]]);
+        target.setStep(this.steps[index]);
+        target.setStability(this.stabilities[index]);
+        target.setDifficulty(this.difficulties[index]);
+        target.setDueEpochMillis(this.dueEpochMillis[index]);
+        target.setLastReviewEpochMillis(this.lastReviewEpochMillis[index]);
+
+        return target;
+    }
+
+    @Override
+    public void set(int index, @NonNull CardState cardState) {
+
+        checkIndex(index);
+
+        int step = cardState.getStep();
+        if (step < Short.MIN_VALUE || step > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("step " + step + " does not fit in a CardStore");
+        }
+
+        this.cardIds[index] = cardState.getCardId();
+        this.states[index] = (byte) cardState.getState().ordinal();
+        this.steps[index] = (short) step;
+        this.stabilities[index] = cardState.getStability();
+        this.difficulties[index] = cardState.getDifficulty();
+        this.dueEpochMillis[index] = cardState.getDueEpochMillis();
+        this.lastReviewEpochMillis[index] = cardState.getLastReviewEpochMillis();
+    }
+
+    @Override
+    public int getCardId(int index) {
+
+        checkIndex(index);
+        return this.cardIds[index];
+    }
+
+    @Override
+    public State getState(int index) {
+
+        checkIndex(index);
+        return STATES[this.states[index]];
+    }
+
+    @Override
+    public double getStability(int index) {
+
+        checkIndex(index);
+        return this.stabilities[index];
+    }
+
+    @Override
+    public double getDifficulty(int index) {
+
+        checkIndex(index);
+        return this.difficulties[index];
+    }
+
+    @Override
+    public long getDueEpochMillis(int index) {
+
+        checkIndex(index);
+        return this.dueEpochMillis[index];
+    }
+
+    @Override
+    public long getLastReviewEpochMillis(int index) {
+
+        checkIndex(index);
+        return this.lastReviewEpochMillis[index];
+    }
+
+    private void checkIndex(int index) {
+
+        Objects.checkIndex(index, this.size);
+    }
+}
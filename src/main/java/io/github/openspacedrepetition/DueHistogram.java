@@ -0,0 +1,105 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.NonNull;
+
+/*
+the number of cards of a collection due on each day, for load balancing reviews with
+Scheduler.reviewCard(card, rating, reviewDatetime, reviewDuration, dueHistogram)
+
+days are the scheduler's days: local days of its timeZone starting dayStartOffset after
+midnight, or UTC days without a timeZone. cards are tracked by cardId, so adding a card again
+moves it to its current due day and removing a card that is not counted changes nothing. new
+cards that were never reviewed are not counted. reviewing with the histogram moves the card to
+its new due day, other changes to the collection (reviews without the histogram, adding or
+deleting reviewed cards) are applied with add and remove
+
+all methods are thread-safe. concurrent reviews may pick the same least loaded day, which only
+makes the spreading slightly less even
+*/
+public class DueHistogram {
+
+    private final Scheduler scheduler;
+    private final ConcurrentHashMap<Long, Integer> counts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, Long> dueDays = new ConcurrentHashMap<>();
+
+    public DueHistogram(@NonNull Scheduler scheduler) {
+
+        this.scheduler = scheduler;
+    }
+
+    /*
+    counts the card on its due day, moving it there if it was counted on another day
+    */
+    public void add(@NonNull Card card) {
+
+        if (card.getLastReview() == null) {
+            remove(card);
+            return;
+        }
+
+        long dueDay = this.scheduler.dueDay(card.getDue().toEpochMilli());
+
+        // the card's counts are updated under its entry's lock, so they match dueDays
+        this.dueDays.compute(
+                card.getCardId(),
+                (cardId, previousDueDay) -> {
+                    if (previousDueDay != null) {
+                        decrement(previousDueDay);
+                    }
+                    this.counts.merge(dueDay, 1, Integer::sum);
+
+                    return dueDay;
+                });
+    }
+
+    public void addAll(@NonNull Iterable<Card> cards) {
+
+        for (Card card : cards) {
+            add(card);
+        }
+    }
+
+    public void remove(@NonNull Card card) {
+
+        this.dueDays.computeIfPresent(
+                card.getCardId(),
+                (cardId, dueDay) -> {
+                    decrement(dueDay);
+                    return null;
+                });
+    }
+
+    private void decrement(long dueDay) {
+
+        this.counts.computeIfPresent(dueDay, (day, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /*
+    the number of cards due on the day of the given instant
+    */
+    public int getCount(@NonNull Instant day) {
+
+        return getCount(day.toEpochMilli());
+    }
+
+    int getCount(long epochMillis) {
+
+        return this.counts.getOrDefault(this.scheduler.dueDay(epochMillis), 0);
+    }
+
+    /*
+    the number of cards counted
+    */
+    public int size() {
+        return this.dueDays.size();
+    }
+
+    public void clear() {
+
+        this.dueDays.clear();
+        this.counts.clear();
+    }
+}
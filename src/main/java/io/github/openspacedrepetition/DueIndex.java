@@ -0,0 +1,255 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import lombok.NonNull;
+
+/*
+an index of the cards in a CardStateStore bucketed by due day
+
+dueBefore only visits the buckets up to the requested instant, so its cost depends on the
+number of due cards rather than the size of the store. call update(index) after a card's due
+date changes (e.g. after reviewing it in place) or after adding it to the store
+*/
+public class DueIndex {
+
+    private static final long MILLIS_PER_DAY = Duration.ofDays(1).toMillis();
+    private static final int SCAN_THRESHOLD = 1 << 16;
+    private static final int NOT_INDEXED = -1;
+
+    private static final class Bucket {
+
+        private int[] indices = new int[8];
+        private int size;
+    }
+
+    private final CardStateStore cards;
+    private final TreeMap<Long, Bucket> buckets;
+
+    // for each card index, the day of the bucket it is in and its position within that bucket
+    private long[] bucketDays;
+    private int[] bucketPositions;
+
+    public DueIndex(@NonNull CardStateStore cards) {
+
+        this.cards = cards;
+        this.buckets = new TreeMap<>();
+        this.bucketDays = new long[cards.size()];
+        this.bucketPositions = new int[cards.size()];
+        Arrays.fill(this.bucketPositions, NOT_INDEXED);
+
+        for (int i = 0; i < cards.size(); i++) {
+            insert(i, dueDay(cards.getDueEpochMillis(i)));
+        }
+    }
+
+    private static long dueDay(long dueEpochMillis) {
+
+        return Math.floorDiv(dueEpochMillis, MILLIS_PER_DAY);
+    }
+
+    public synchronized void update(int index) {
+
+        if (index >= this.bucketDays.length) {
+
+            int newLength = Math.max(this.cards.size(), index + 1);
+            int oldLength = this.bucketDays.length;
+
+            this.bucketDays = Arrays.copyOf(this.bucketDays, newLength);
+            this.bucketPositions = Arrays.copyOf(this.bucketPositions, newLength);
+            Arrays.fill(this.bucketPositions, oldLength, newLength, NOT_INDEXED);
+        }
+
+        long day = dueDay(this.cards.getDueEpochMillis(index));
+
+        if (this.bucketPositions[index] != NOT_INDEXED) {
+
+            if (this.bucketDays[index] == day) {
+                return;
+            }
+            remove(index);
+        }
+
+        insert(index, day);
+    }
+
+    private void insert(int index, long day) {
+
+        Bucket bucket = this.buckets.computeIfAbsent(day, d -> new Bucket());
+
+        if (bucket.size == bucket.indices.length) {
+            bucket.indices = Arrays.copyOf(bucket.indices, bucket.size * 2);
+        }
+
+        bucket.indices[bucket.size] = index;
+        this.bucketDays[index] = day;
+        this.bucketPositions[index] = bucket.size;
+        bucket.size++;
+    }
+
+    private void remove(int index) {
+
+        long day = this.bucketDays[index];
+        Bucket bucket = this.buckets.get(day);
+
+        // move the bucket's last card into the removed card's position
+        int position = this.bucketPositions[index];
+        int lastIndex = bucket.indices[bucket.size - 1];
+        bucket.indices[position] = lastIndex;
+        this.bucketPositions[lastIndex] = position;
+        bucket.size--;
+
+        this.bucketPositions[index] = NOT_INDEXED;
+
+        if (bucket.size == 0) {
+            this.buckets.remove(day);
+        }
+    }
+
+    /*
+    returns the indices of up to limit cards that are due at or before the given instant,
+    ordered by due date
+    */
+    public synchronized int[] dueBefore(@NonNull Instant before, int limit) {
+
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative");
+        }
+
+        long beforeEpochMillis = before.toEpochMilli();
+
+        int[] result = new int[Math.min(limit, 16)];
+        int resultSize = 0;
+
+        for (Map.Entry<Long, Bucket> entry :
+                this.buckets.headMap(dueDay(beforeEpochMillis), true).entrySet()) {
+
+            if (resultSize >= limit) {
+                break;
+            }
+
+            long dayStartEpochMillis = entry.getKey() * MILLIS_PER_DAY;
+            Bucket bucket = entry.getValue();
+
+            // within a day, (due offset, index) pairs fit in one long and sort by due
+            long[] dueCards = new long[bucket.size];
+            int dueCardsSize = 0;
+            for (int i = 0; i < bucket.size; i++) {
+
+                int index = bucket.indices[i];
+                long dueEpochMillis = this.cards.getDueEpochMillis(index);
+
+                if (dueEpochMillis <= beforeEpochMillis) {
+                    dueCards[dueCardsSize++] =
+                            ((dueEpochMillis - dayStartEpochMillis) << 32) | index;
+                }
+            }
+            Arrays.sort(dueCards, 0, dueCardsSize);
+
+            int taken = Math.min(dueCardsSize, limit - resultSize);
+            if (resultSize + taken > result.length) {
+                result =
+                        Arrays.copyOf(
+                                result,
+                                (int)
+                                        Math.min(
+                                                limit,
+                                                Math.max(resultSize + taken, 2L * result.length)));
+            }
+            for (int i = 0; i < taken; i++) {
+                result[resultSize++] = (int) dueCards[i];
+            }
+        }
+
+        return resultSize == result.length ? result : Arrays.copyOf(result, resultSize);
+    }
+
+    public synchronized int countDueBefore(@NonNull Instant before) {
+
+        long beforeEpochMillis = before.toEpochMilli();
+        long beforeDay = dueDay(beforeEpochMillis);
+
+        int count = 0;
+        for (Map.Entry<Long, Bucket> entry : this.buckets.headMap(beforeDay, true).entrySet()) {
+
+            Bucket bucket = entry.getValue();
+            if (entry.getKey() < beforeDay) {
+                count += bucket.size;
+                continue;
+            }
+
+            for (int i = 0; i < bucket.size; i++) {
+                if (this.cards.getDueEpochMillis(bucket.indices[i]) <= beforeEpochMillis) {
+                    count++;
+                }
+            }
+        }
+
+        return count;
+    }
+
+    /*
+    scans the whole store in parallel on the common fork-join pool and returns the indices of
+    all cards due at or before the given instant, in index order
+    */
+    public static int[] scanDueBefore(@NonNull CardStateStore cards, @NonNull Instant before) {
+
+        return ForkJoinPool.commonPool()
+                .invoke(new ScanTask(cards, before.toEpochMilli(), 0, cards.size()));
+    }
+
+    private static final class ScanTask extends RecursiveTask<int[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final CardStateStore cards;
+        private final long beforeEpochMillis;
+        private final int from;
+        private final int to;
+
+        private ScanTask(CardStateStore cards, long beforeEpochMillis, int from, int to) {
+
+            this.cards = cards;
+            this.beforeEpochMillis = beforeEpochMillis;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected int[] compute() {
+
+            if (this.to - this.from <= SCAN_THRESHOLD) {
+
+                int[] dueCards = new int[this.to - this.from];
+                int size = 0;
+                for (int i = this.from; i < this.to; i++) {
+                    if (this.cards.getDueEpochMillis(i) <= this.beforeEpochMillis) {
+                        dueCards[size++] = i;
+                    }
+                }
+
+                return Arrays.copyOf(dueCards, size);
+            }
+
+            int middle = (this.from + this.to) >>> 1;
+            ScanTask left = new ScanTask(this.cards, this.beforeEpochMillis, this.from, middle);
+            ScanTask right = new ScanTask(this.cards, this.beforeEpochMillis, middle, this.to);
+
+            left.fork();
+            int[] rightDueCards = right.compute();
+            int[] leftDueCards = left.join();
+
+            int[] dueCards =
+                    Arrays.copyOf(leftDueCards, leftDueCards.length + rightDueCards.length);
+            System.arraycopy(rightDueCards, 0, dueCards, leftDueCards.length, rightDueCards.length);
+
+            return dueCards;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/*
+the shared json configuration behind the toJson and fromJson methods
+
+ObjectMapper is expensive to build but thread-safe once configured, and ObjectReader and
+ObjectWriter are immutable, so one of each per type is built here and reused by every call
+*/
+final class Json {
+
+    private static final ObjectMapper MAPPER =
+            new ObjectMapper()
+                    .registerModule(new JavaTimeModule())
+                    .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                    .disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+    static final JsonFactory FACTORY = MAPPER.getFactory();
+
+    static final ObjectReader CARD_READER = MAPPER.readerFor(Card.class);
+    static final ObjectWriter CARD_WRITER = MAPPER.writerFor(Card.class);
+    static final ObjectReader CARD_LIST_READER =
+            MAPPER.readerFor(new TypeReference<List<Card>>() {});
+    static final ObjectWriter CARD_LIST_WRITER =
+            MAPPER.writerFor(new TypeReference<List<Card>>() {});
+
+    static final ObjectReader REVIEW_LOG_READER = MAPPER.readerFor(ReviewLog.class);
+    static final ObjectWriter REVIEW_LOG_WRITER = MAPPER.writerFor(ReviewLog.class);
+    static final ObjectReader REVIEW_LOG_LIST_READER =
+            MAPPER.readerFor(new TypeReference<List<ReviewLog>>() {});
+    static final ObjectWriter REVIEW_LOG_LIST_WRITER =
+            MAPPER.writerFor(new TypeReference<List<ReviewLog>>() {});
+
+    static final ObjectReader SCHEDULER_READER = MAPPER.readerFor(Scheduler.class);
+    static final ObjectWriter SCHEDULER_WRITER = MAPPER.writerFor(Scheduler.class);
+
+    private Json() {}
+
+    static String write(ObjectWriter writer, Object value) {
+
+        try {
+            return writer.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static <T> T read(ObjectReader reader, String json) {
+
+        try {
+            return reader.readValue(json);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /*
+    writes the values as a json array one element at a time, without building the whole string
+    */
+    static <T> void writeArray(ObjectWriter elementWriter, Iterator<T> values, Writer out)
+            throws IOException {
+
+        try (JsonGenerator generator = FACTORY.createGenerator(out)) {
+
+            generator.writeStartArray();
+            while (values.hasNext()) {
+                elementWriter.writeValue(generator, values.next());
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    /*
+    lazily reads the elements of a json array, closing the stream closes the reader
+    */
+    static <T> Stream<T> readArray(ObjectReader elementReader, Reader in) {
+
+        try {
+            // a root-level array is unwrapped, so elements are read one at a time
+            MappingIterator<T> elements = elementReader.readValues(in);
+
+            return StreamSupport.stream(
+                            Spliterators.spliteratorUnknownSize(
+                                    elements, Spliterator.ORDERED | Spliterator.NONNULL),
+                            false)
+                    .onClose(
+                            () -> {
+                                try {
+                                    elements.close();
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                            });
+
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
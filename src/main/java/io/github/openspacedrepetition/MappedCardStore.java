@@ -0,0 +1,289 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Objects;
+import lombok.NonNull;
+
+/*
+a CardStateStore backed by a memory-mapped file of fixed-width little-endian records
+
+opening an existing file only maps it, so startup does not depend on the number of cards and
+the card state lives off-heap. writes go straight to the mapped pages, call force() to flush
+them to disk
+
+distinct indices can be read and written concurrently, but add and ensureCapacity may remap
+the file and must not run concurrently with other access
+
+file layout:
+header (64 bytes): magic int, version int, record size int, reserved int, size long
+record (40 bytes): cardId int, state byte, reserved byte, step short, stability double,
+                   difficulty double, due long, lastReview long (epoch millis)
+*/
+public class MappedCardStore implements CardStateStore, Closeable {
+
+    private static final int MAGIC = 0x46535253; // "FSRS"
+    private static final int VERSION = 1;
+
+    static final int HEADER_BYTES = 64;
+    static final int RECORD_BYTES = 40;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int RECORD_BYTES_OFFSET = 8;
+    private static final int SIZE_OFFSET = 16;
+
+    private static final int CARD_ID_OFFSET = 0;
+    private static final int STATE_OFFSET = 4;
+    private static final int STEP_OFFSET = 6;
+    private static final int STABILITY_OFFSET = 8;
+    private static final int DIFFICULTY_OFFSET = 16;
+    private static final int DUE_OFFSET = 24;
+    private static final int LAST_REVIEW_OFFSET = 32;
+
+    // a single mapping is limited to 2GB, so records are mapped in chunks
+    private static final int CHUNK_SHIFT = 24;
+    private static final int RECORDS_PER_CHUNK = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = RECORDS_PER_CHUNK - 1;
+    private static final int MIN_CHUNK_RECORDS = 1024;
+
+    private static final State[] STATES = State.values();
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private MappedByteBuffer[] chunks;
+    private int size;
+
+    private MappedCardStore(FileChannel channel) throws IOException {
+
+        this.channel = channel;
+        this.header = map(0, HEADER_BYTES);
+        this.chunks = new MappedByteBuffer[0];
+
+        if (channel.size() == HEADER_BYTES && this.header.getInt(MAGIC_OFFSET) == 0) {
+
+            this.header.putInt(MAGIC_OFFSET, MAGIC);
+            this.header.putInt(VERSION_OFFSET, VERSION);
+            this.header.putInt(RECORD_BYTES_OFFSET, RECORD_BYTES);
+            this.header.putLong(SIZE_OFFSET, 0);
+
+        } else if (this.header.getInt(MAGIC_OFFSET) != MAGIC
+                || this.header.getInt(VERSION_OFFSET) != VERSION
+                || this.header.getInt(RECORD_BYTES_OFFSET) != RECORD_BYTES) {
+
+            throw new IOException("not a card state file (version " + VERSION + ")");
+        }
+
+        long storedSize = this.header.getLong(SIZE_OFFSET);
+        if (storedSize < 0 || storedSize > Integer.MAX_VALUE) {
+            throw new IOException("corrupt card state file, size " + storedSize);
+        }
+
+        long mappableRecords = (channel.size() - HEADER_BYTES) / RECORD_BYTES;
+        ensureCapacity((int) Math.max(storedSize, Math.min(mappableRecords, Integer.MAX_VALUE)));
+        this.size = (int) storedSize;
+    }
+
+    public static MappedCardStore open(@NonNull Path path) throws IOException {
+
+        FileChannel channel =
+                FileChannel.open(
+                        path,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+
+        try {
+            return new MappedCardStore(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private MappedByteBuffer map(long position, long length) throws IOException {
+
+        MappedByteBuffer buffer =
+                this.channel.map(FileChannel.MapMode.READ_WRITE, position, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        return buffer;
+    }
+
+    private int capacity() {
+
+        int capacity = 0;
+        for (MappedByteBuffer chunk : this.chunks) {
+            capacity += chunk.capacity() / RECORD_BYTES;
+        }
+
+        return capacity;
+    }
+
+    public synchronized void ensureCapacity(int minCapacity) throws IOException {
+
+        int capacity = capacity();
+
+        while (capacity < minCapacity) {
+
+            int lastChunk = this.chunks.length - 1;
+            int lastChunkRecords =
+                    lastChunk < 0
+                            ? RECORDS_PER_CHUNK
+                            : this.chunks[lastChunk].capacity() / RECORD_BYTES;
+
+            int chunk;
+            int records;
+            if (lastChunkRecords == RECORDS_PER_CHUNK) {
+
+                // start a new chunk
+                chunk = lastChunk + 1;
+                records = Math.max(MIN_CHUNK_RECORDS, minCapacity - capacity);
+                this.chunks = Arrays.copyOf(this.chunks, chunk + 1);
+
+            } else {
+
+                // grow the last chunk
+                chunk = lastChunk;
+                records =
+                        Math.max(lastChunkRecords * 2, minCapacity - (capacity - lastChunkRecords));
+            }
+            records = Math.min(records, RECORDS_PER_CHUNK);
+
+            long position = HEADER_BYTES + ((long) chunk << CHUNK_SHIFT) * RECORD_BYTES;
+            this.chunks[chunk] = map(position, (long) records * RECORD_BYTES);
+
+            capacity = capacity();
+        }
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    public int add(@NonNull Card card) throws IOException {
+
+        return add(new CardState(card));
+    }
+
+    public synchronized int add(@NonNull CardState cardState) throws IOException {
+
+        ensureCapacity(this.size + 1);
+
+        int index = this.size;
+        write(index, cardState);
+
+        this.size++;
+        this.header.putLong(SIZE_OFFSET, this.size);
+
+        return index;
+    }
+
+    private MappedByteBuffer chunk(int index) {
+
+        Objects.checkIndex(index, this.size);
+        return this.chunks[index >>> CHUNK_SHIFT];
+    }
+
+    private static int offset(int index) {
+
+        return (index & CHUNK_MASK) * RECORD_BYTES;
+    }
+
+    @Override
+    public CardState get(int index, @NonNull CardState target) {
+
+        MappedByteBuffer chunk = chunk(index);
+        int offset = offset(index);
+
+        target.setCardId(chunk.getInt(offset + CARD_ID_OFFSET));
+        target.setState(STATES[chunk.get(offset + STATE_OFFSET)]);
+        target.setStep(chunk.getShort(offset + STEP_OFFSET));
+        target.setStability(chunk.getDouble(offset + STABILITY_OFFSET));
+        target.setDifficulty(chunk.getDouble(offset + DIFFICULTY_OFFSET));
+        target.setDueEpochMillis(chunk.getLong(offset + DUE_OFFSET));
+        target.setLastReviewEpochMillis(chunk.getLong(offset + LAST_REVIEW_OFFSET));
+
+        return target;
+    }
+
+    @Override
+    public void set(int index, @NonNull CardState cardState) {
+
+        Objects.checkIndex(index, this.size);
+        write(index, cardState);
+    }
+
+    private void write(int index, CardState cardState) {
+
+        int step = cardState.getStep();
+        if (step < Short.MIN_VALUE || step > Short.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "step " + step + " does not fit in a MappedCardStore");
+        }
+
+        MappedByteBuffer chunk = this.chunks[index >>> CHUNK_SHIFT];
+        int offset = offset(index);
+
+        chunk.putInt(offset + CARD_ID_OFFSET, cardState.getCardId());
+        chunk.put(offset + STATE_OFFSET, (byte) cardState.getState().ordinal());
+        chunk.putShort(offset + STEP_OFFSET, (short) step);
+        chunk.putDouble(offset + STABILITY_OFFSET, cardState.getStability());
+        chunk.putDouble(offset + DIFFICULTY_OFFSET, cardState.getDifficulty());
+        chunk.putLong(offset + DUE_OFFSET, cardState.getDueEpochMillis());
+        chunk.putLong(offset + LAST_REVIEW_OFFSET, cardState.getLastReviewEpochMillis());
+    }
+
+    @Override
+    public int getCardId(int index) {
+        return chunk(index).getInt(offset(index) + CARD_ID_OFFSET);
+    }
+
+    @Override
+    public State getState(int index) {
+        return STATES[chunk(index).get(offset(index) + STATE_OFFSET)];
+    }
+
+    @Override
+    public double getStability(int index) {
+        return chunk(index).getDouble(offset(index) + STABILITY_OFFSET);
+    }
+
+    @Override
+    public double getDifficulty(int index) {
+        return chunk(index).getDouble(offset(index) + DIFFICULTY_OFFSET);
+    }
+
+    @Override
+    public long getDueEpochMillis(int index) {
+        return chunk(index).getLong(offset(index) + DUE_OFFSET);
+    }
+
+    @Override
+    public long getLastReviewEpochMillis(int index) {
+        return chunk(index).getLong(offset(index) + LAST_REVIEW_OFFSET);
+    }
+
+    public synchronized void force() {
+
+        for (MappedByteBuffer chunk : this.chunks) {
+            chunk.force();
+        }
+        this.header.force();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+
+        force();
+        this.channel.close();
+    }
+}
@@ -0,0 +1,767 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+import lombok.NonNull;
+
+/*
+fits the 21 FSRS parameters of a Scheduler to a history of ReviewLogs
+
+the review logs are grouped by card into compact primitive arrays once, then the parameters are
+trained with mini-batch Adam on the binary cross-entropy between each review's predicted
+retrievability and whether it was recalled. gradients are computed by hand over the same
+stability and difficulty formulas the Scheduler uses, and each mini-batch is split across
+cards on a fork-join pool
+*/
+public class Optimizer {
+
+    private static final long MILLIS_PER_DAY = Duration.ofDays(1).toMillis();
+    private static final int NUM_PARAMETERS = 21;
+
+    // training hyperparameters
+    private static final int EPOCHS = 5;
+    private static final int MINI_BATCH_SIZE = 512;
+    private static final double LEARNING_RATE = 4e-2;
+    private static final double BETA_1 = 0.9;
+    private static final double BETA_2 = 0.999;
+    private static final double ADAM_EPSILON = 1e-8;
+    private static final double LOSS_EPSILON = 1e-7;
+    private static final int MIN_LOSS_TERMS = 512;
+    private static final int SPLIT_THRESHOLD = 32;
+    private static final int RANDOM_SEED = 42;
+
+    // retention simulation
+    private static final double[] CANDIDATE_RETENTIONS = {0.7, 0.75, 0.8, 0.85, 0.9, 0.95};
+    private static final int NUM_CARDS_SIMULATE = 1000;
+    private static final int SIMULATION_DAYS = 365;
+    private static final double DEFAULT_REVIEW_DURATION_MILLIS = 10_000;
+
+    private static final double[] LOWER_BOUNDS = {
+        Scheduler.STABILITY_MIN,
+        Scheduler.STABILITY_MIN,
+        Scheduler.STABILITY_MIN,
+        Scheduler.STABILITY_MIN,
+        1.0,
+        0.001,
+        0.001,
+        0.001,
+        0.0,
+        0.0,
+        0.001,
+        0.001,
+        0.001,
+        0.001,
+        0.0,
+        0.0,
+        1.0,
+        0.0,
+        0.0,
+        0.0,
+        0.1,
+    };
+
+    private static final double[] UPPER_BOUNDS = {
+        100.0, 100.0, 100.0, 100.0, 10.0, 4.0, 4.0, 0.75, 4.5, 0.8, 3.5, 5.0, 0.25, 0.9, 4.0, 1.0,
+        6.0, 2.0, 2.0, 0.8, 0.8,
+    };
+
+    private final ForkJoinPool pool;
+
+    // review history, grouped by card and ordered by review time
+    private final int[] cardOffsets;
+    private final byte[] ratings;
+    private final int[] elapsedDays;
+    private final int[] reviewDurations;
+    private final int numLossTerms;
+
+    public Optimizer(@NonNull Stream<ReviewLog> reviewLogs) {
+
+        this(reviewLogs, ForkJoinPool.commonPool());
+    }
+
+    public Optimizer(@NonNull Stream<ReviewLog> reviewLogs, @NonNull ForkJoinPool pool) {
+
+        this.pool = pool;
+
+        // collect the logs into flat primitive columns
+        Columns columns = new Columns();
+        reviewLogs.forEachOrdered(columns::add);
+
+        // counting sort of the review positions by card
+        Map<Integer, Integer> cardIndices = new HashMap<>();
+        int[] cardIndexOfReview = new int[columns.size];
+        for (int i = 0; i < columns.size; i++) {
+            cardIndexOfReview[i] =
+                    cardIndices.computeIfAbsent(columns.cardIds[i], id -> cardIndices.size());
+        }
+
+        int numCards = cardIndices.size();
+        this.cardOffsets = new int[numCards + 1];
+        for (int i = 0; i < columns.size; i++) {
+            this.cardOffsets[cardIndexOfReview[i] + 1]++;
+        }
+        for (int card = 0; card < numCards; card++) {
+            this.cardOffsets[card + 1] += this.cardOffsets[card];
+        }
+
+        int[] positions = new int[columns.size];
+        int[] next = Arrays.copyOf(this.cardOffsets, numCards);
+        for (int i = 0; i < columns.size; i++) {
+            positions[next[cardIndexOfReview[i]]++] = i;
+        }
+
+        this.ratings = new byte[columns.size];
+        this.elapsedDays = new int[columns.size];
+        this.reviewDurations = new int[columns.size];
+
+        int numLossTerms = 0;
+        for (int card = 0; card < numCards; card++) {
+
+            int from = this.cardOffsets[card];
+            int to = this.cardOffsets[card + 1];
+            sortByReviewTime(positions, from, to, columns.reviewEpochMillis);
+
+            for (int i = from; i < to; i++) {
+
+                int position = positions[i];
+
+                this.ratings[i] = (byte) columns.ratings[position].getValue();
+                this.reviewDurations[i] = columns.reviewDurations[position];
+
+                if (i == from) {
+                    this.elapsedDays[i] = 0;
+                } else {
+                    long elapsedMillis =
+                            columns.reviewEpochMillis[position]
+                                    - columns.reviewEpochMillis[positions[i - 1]];
+                    this.elapsedDays[i] = (int) (elapsedMillis / MILLIS_PER_DAY);
+
+                    if (this.elapsedDays[i] >= 1) {
+                        numLossTerms++;
+                    }
+                }
+            }
+        }
+        this.numLossTerms = numLossTerms;
+    }
+
+    private static final class Columns {
+
+        private int size;
+        private int[] cardIds = new int[1024];
+        private Rating[] ratings = new Rating[1024];
+        private long[] reviewEpochMillis = new long[1024];
+        private int[] reviewDurations = new int[1024];
+
+        private void add(ReviewLog reviewLog) {
+
+            if (this.size == this.cardIds.length) {
+                int newLength = this.size * 2;
+                this.cardIds = Arrays.copyOf(this.cardIds, newLength);
+                this.ratings = Arrays.copyOf(this.ratings, newLength);
+                this.reviewEpochMillis = Arrays.copyOf(this.reviewEpochMillis, newLength);
+                this.reviewDurations = Arrays.copyOf(this.reviewDurations, newLength);
+            }
+
+            this.cardIds[this.size] = reviewLog.cardId();
+            this.ratings[this.size] = reviewLog.rating();
+            this.reviewEpochMillis[this.size] = reviewLog.reviewDatetime().toEpochMilli();
+            this.reviewDurations[this.size] =
+                    reviewLog.reviewDuration() == null ? -1 : reviewLog.reviewDuration();
+            this.size++;
+        }
+    }
+
+    private static void sortByReviewTime(
+            int[] positions, int from, int to, long[] reviewEpochMillis) {
+
+        // exports are usually already in time order, otherwise insertion sort the card's reviews
+        for (int i = from + 1; i < to; i++) {
+
+            int position = positions[i];
+            long reviewTime = reviewEpochMillis[position];
+
+            int j = i - 1;
+            while (j >= from && reviewEpochMillis[positions[j]] > reviewTime) {
+                positions[j + 1] = positions[j];
+                j--;
+            }
+            positions[j + 1] = position;
+        }
+    }
+
+    public int getNumCards() {
+        return this.cardOffsets.length - 1;
+    }
+
+    public int getNumReviews() {
+        return this.ratings.length;
+    }
+
+    public double[] computeOptimalParameters() {
+
+        return computeOptimalParameters(Scheduler.builder().build().getParameters());
+    }
+
+    public double[] computeOptimalParameters(@NonNull double[] initialParameters) {
+
+        if (initialParameters.length != NUM_PARAMETERS) {
+            throw new IllegalArgumentException(
+                    "expected " + NUM_PARAMETERS + " parameters, got " + initialParameters.length);
+        }
+
+        double[] parameters = initialParameters.clone();
+
+        // not enough data to improve on the initial parameters
+        if (this.numLossTerms < MIN_LOSS_TERMS) {
+            return parameters;
+        }
+
+        int numCards = getNumCards();
+        int[] cards = new int[numCards];
+        for (int card = 0; card < numCards; card++) {
+            cards[card] = card;
+        }
+
+        double[] firstMoment = new double[NUM_PARAMETERS];
+        double[] secondMoment = new double[NUM_PARAMETERS];
+
+        int batchesPerEpoch = (numCards + MINI_BATCH_SIZE - 1) / MINI_BATCH_SIZE;
+        int totalSteps = EPOCHS * batchesPerEpoch;
+        int step = 0;
+
+        Random random = new Random(RANDOM_SEED);
+
+        for (int epoch = 0; epoch < EPOCHS; epoch++) {
+
+            shuffle(cards, random);
+
+            for (int batchStart = 0; batchStart < numCards; batchStart += MINI_BATCH_SIZE) {
+
+                int batchEnd = Math.min(batchStart + MINI_BATCH_SIZE, numCards);
+
+                double[] lossAndGradient =
+                        this.pool.invoke(
+                                new GradientTask(this, parameters, cards, batchStart, batchEnd));
+
+                double count = lossAndGradient[NUM_PARAMETERS + 1];
+                step++;
+                if (count == 0) {
+                    continue;
+                }
+
+                // adam with cosine annealing of the learning rate
+                double learningRate =
+                        LEARNING_RATE * 0.5 * (1 + Math.cos(Math.PI * step / totalSteps));
+                double biasCorrection1 = 1 - Math.pow(BETA_1, step);
+                double biasCorrection2 = 1 - Math.pow(BETA_2, step);
+
+                for (int k = 0; k < NUM_PARAMETERS; k++) {
+
+                    double gradient = lossAndGradient[k] / count;
+
+                    firstMoment[k] = BETA_1 * firstMoment[k] + (1 - BETA_1) * gradient;
+                    secondMoment[k] = BETA_2 * secondMoment[k] + (1 - BETA_2) * gradient * gradient;
+
+                    double firstMomentHat = firstMoment[k] / biasCorrection1;
+                    double secondMomentHat = secondMoment[k] / biasCorrection2;
+
+                    parameters[k] -=
+                            learningRate
+                                    * firstMomentHat
+                                    / (Math.sqrt(secondMomentHat) + ADAM_EPSILON);
+                    parameters[k] =
+                            Math.min(Math.max(parameters[k], LOWER_BOUNDS[k]), UPPER_BOUNDS[k]);
+                }
+            }
+        }
+
+        return parameters;
+    }
+
+    private static void shuffle(int[] values, Random random) {
+
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int value = values[i];
+            values[i] = values[j];
+            values[j] = value;
+        }
+    }
+
+    /*
+    returns the summed loss and gradient over all cards as
+    {dL/dw_0, ..., dL/dw_20, loss, number of loss terms}
+    */
+    double[] computeLossAndGradient(@NonNull double[] parameters) {
+
+        int numCards = getNumCards();
+        int[] cards = new int[numCards];
+        for (int card = 0; card < numCards; card++) {
+            cards[card] = card;
+        }
+
+        return this.pool.invoke(new GradientTask(this, parameters, cards, 0, numCards));
+    }
+
+    private static final class GradientTask extends RecursiveTask<double[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Optimizer optimizer;
+        private final double[] parameters;
+        private final int[] cards;
+        private final int from;
+        private final int to;
+
+        private GradientTask(
+                Optimizer optimizer, double[] parameters, int[] cards, int from, int to) {
+
+            this.optimizer = optimizer;
+            this.parameters = parameters;
+            this.cards = cards;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected double[] compute() {
+
+            if (this.to - this.from <= SPLIT_THRESHOLD) {
+
+                double[] lossAndGradient = new double[NUM_PARAMETERS + 2];
+                CardGradient cardGradient = new CardGradient(this.parameters);
+                for (int i = this.from; i < this.to; i++) {
+                    cardGradient.accumulate(this.optimizer, this.cards[i], lossAndGradient);
+                }
+
+                return lossAndGradient;
+            }
+
+            int middle = (this.from + this.to) >>> 1;
+            GradientTask left =
+                    new GradientTask(
+                            this.optimizer, this.parameters, this.cards, this.from, middle);
+            GradientTask right =
+                    new GradientTask(this.optimizer, this.parameters, this.cards, middle, this.to);
+
+            left.fork();
+            double[] rightLossAndGradient = right.compute();
+            double[] lossAndGradient = left.join();
+
+            for (int k = 0; k < lossAndGradient.length; k++) {
+                lossAndGradient[k] += rightLossAndGradient[k];
+            }
+
+            return lossAndGradient;
+        }
+    }
+
+    /*
+    replays one card's reviews while carrying the derivatives of its stability and difficulty
+    with respect to every parameter (forward-mode), adding each review's loss gradient
+    */
+    private static final class CardGradient {
+
+        private final double[] w;
+        private final double decay;
+        private final double factor;
+        private final double dFactorDDecay;
+
+        private final double[] gS = new double[NUM_PARAMETERS];
+        private final double[] gD = new double[NUM_PARAMETERS];
+        private final double[] gR = new double[NUM_PARAMETERS];
+        private final double[] nextGS = new double[NUM_PARAMETERS];
+
+        private CardGradient(double[] parameters) {
+
+            this.w = parameters;
+            this.decay = -parameters[20];
+            this.factor = Math.pow(0.9, 1.0 / this.decay) - 1;
+            this.dFactorDDecay =
+                    Math.pow(0.9, 1.0 / this.decay)
+                            * Math.log(0.9)
+                            * (-1.0 / (this.decay * this.decay));
+        }
+
+        private void accumulate(Optimizer optimizer, int card, double[] lossAndGradient) {
+
+            int from = optimizer.cardOffsets[card];
+            int to = optimizer.cardOffsets[card + 1];
+
+            double[] w = this.w;
+
+            // first review: initial stability and difficulty
+            int rating = optimizer.ratings[from];
+
+            Arrays.fill(this.gS, 0);
+            Arrays.fill(this.gD, 0);
+
+            double s = w[rating - 1];
+            if (s < Scheduler.STABILITY_MIN) {
+                s = Scheduler.STABILITY_MIN;
+            } else {
+                this.gS[rating - 1] = 1;
+            }
+
+            double d = w[4] - Math.exp(w[5] * (rating - 1)) + 1;
+            if (d <= 1.0) {
+                d = 1.0;
+            } else if (d >= 10.0) {
+                d = 10.0;
+            } else {
+                this.gD[4] = 1;
+                this.gD[5] = -(rating - 1) * Math.exp(w[5] * (rating - 1));
+            }
+
+            for (int i = from + 1; i < to; i++) {
+
+                rating = optimizer.ratings[i];
+                int t = optimizer.elapsedDays[i];
+
+                double nextS;
+                double dSdS;
+                double dSdD = 0;
+                double dSdR = 0;
+                Arrays.fill(this.nextGS, 0);
+
+                if (t >= 1) {
+
+                    // predicted retrievability and its loss
+                    double base = 1 + this.factor * t / s;
+                    double r = Math.pow(base, this.decay);
+
+                    double dRdS = r * this.decay / base * (-this.factor * t / (s * s));
+                    double dRdDecay =
+                            r * (Math.log(base) + this.decay / base * (t / s) * this.dFactorDDecay);
+
+                    for (int k = 0; k < NUM_PARAMETERS; k++) {
+                        this.gR[k] = dRdS * this.gS[k];
+                    }
+                    this.gR[20] -= dRdDecay;
+
+                    double y = rating > Rating.AGAIN.getValue() ? 1 : 0;
+                    double clampedR = Math.min(Math.max(r, LOSS_EPSILON), 1 - LOSS_EPSILON);
+                    double loss = -(y * Math.log(clampedR) + (1 - y) * Math.log(1 - clampedR));
+                    double dLdR = -y / clampedR + (1 - y) / (1 - clampedR);
+
+                    for (int k = 0; k < NUM_PARAMETERS; k++) {
+                        lossAndGradient[k] += dLdR * this.gR[k];
+                    }
+                    lossAndGradient[NUM_PARAMETERS] += loss;
+                    lossAndGradient[NUM_PARAMETERS + 1] += 1;
+
+                    if (rating == Rating.AGAIN.getValue()) {
+
+                        // forget stability
+                        double p = Math.pow(d, -w[12]);
+                        double q = Math.pow(s + 1, w[13]) - 1;
+                        double g = Math.exp((1 - r) * w[14]);
+                        double longTerm = w[11] * p * q * g;
+                        double shortTermDivisor = Math.exp(w[17] * w[18]);
+                        double shortTerm = s / shortTermDivisor;
+
+                        if (longTerm <= shortTerm) {
+
+                            nextS = longTerm;
+                            dSdS = w[11] * p * w[13] * Math.pow(s + 1, w[13] - 1) * g;
+                            dSdD = w[11] * (-w[12]) * Math.pow(d, -w[12] - 1) * q * g;
+                            dSdR = longTerm * (-w[14]);
+                            this.nextGS[11] = p * q * g;
+                            this.nextGS[12] = longTerm * (-Math.log(d));
+                            this.nextGS[13] =
+                                    w[11] * p * Math.pow(s + 1, w[13]) * Math.log(s + 1) * g;
+                            this.nextGS[14] = longTerm * (1 - r);
+
+                        } else {
+
+                            nextS = shortTerm;
+                            dSdS = 1 / shortTermDivisor;
+                            this.nextGS[17] = -shortTerm * w[18];
+                            this.nextGS[18] = -shortTerm * w[17];
+                        }
+
+                    } else {
+
+                        // recall stability
+                        double hardPenalty = rating == Rating.HARD.getValue() ? w[15] : 1;
+                        double easyBonus = rating == Rating.EASY.getValue() ? w[16] : 1;
+
+                        double a = Math.exp(w[8]);
+                        double b = 11 - d;
+                        double c = Math.pow(s, -w[9]);
+                        double e = Math.exp((1 - r) * w[10]);
+                        double m = e - 1;
+                        double increase = a * b * c * m * hardPenalty * easyBonus;
+
+                        nextS = s * (1 + increase);
+                        dSdS = 1 + increase * (1 - w[9]);
+                        dSdD = -s * a * c * m * hardPenalty * easyBonus;
+                        dSdR = s * a * b * c * hardPenalty * easyBonus * e * (-w[10]);
+                        this.nextGS[8] = s * increase;
+                        this.nextGS[9] = s * increase * (-Math.log(s));
+                        this.nextGS[10] = s * a * b * c * hardPenalty * easyBonus * e * (1 - r);
+                        if (rating == Rating.HARD.getValue()) {
+                            this.nextGS[15] = s * a * b * c * m * easyBonus;
+                        }
+                        if (rating == Rating.EASY.getValue()) {
+                            this.nextGS[16] = s * a * b * c * m * hardPenalty;
+                        }
+                    }
+
+                } else {
+
+                    // same-day review: short-term stability
+                    double increase = Math.exp(w[17] * (rating - 3 + w[18])) * Math.pow(s, -w[19]);
+
+                    if (rating >= Rating.GOOD.getValue() && increase < 1.0) {
+
+                        nextS = s;
+                        dSdS = 1;
+
+                    } else {
+
+                        nextS = s * increase;
+                        dSdS = increase * (1 - w[19]);
+                        this.nextGS[17] = nextS * (rating - 3 + w[18]);
+                        this.nextGS[18] = nextS * w[17];
+                        this.nextGS[19] = nextS * (-Math.log(s));
+                    }
+                }
+
+                if (nextS < Scheduler.STABILITY_MIN) {
+
+                    nextS = Scheduler.STABILITY_MIN;
+                    Arrays.fill(this.nextGS, 0);
+
+                } else {
+
+                    for (int k = 0; k < NUM_PARAMETERS; k++) {
+                        this.nextGS[k] += dSdS * this.gS[k] + dSdD * this.gD[k];
+                        if (t >= 1) {
+                            this.nextGS[k] += dSdR * this.gR[k];
+                        }
+                    }
+                }
+
+                // next difficulty, from the difficulty before this review
+                double easyInitialDifficulty = w[4] - Math.exp(w[5] * 3) + 1;
+                double dEasyDW4 = 0;
+                double dEasyDW5 = 0;
+                if (easyInitialDifficulty <= 1.0) {
+                    easyInitialDifficulty = 1.0;
+                } else if (easyInitialDifficulty >= 10.0) {
+                    easyInitialDifficulty = 10.0;
+                } else {
+                    dEasyDW4 = 1;
+                    dEasyDW5 = -3 * Math.exp(w[5] * 3);
+                }
+
+                double deltaDifficulty = -(w[6] * (rating - 3));
+                double dampedDifficulty = d + (10.0 - d) * deltaDifficulty / 9.0;
+                double nextD = w[7] * easyInitialDifficulty + (1 - w[7]) * dampedDifficulty;
+
+                if (nextD <= 1.0 || nextD >= 10.0) {
+
+                    nextD = Math.min(Math.max(nextD, 1.0), 10.0);
+                    Arrays.fill(this.gD, 0);
+
+                } else {
+
+                    double dDdD = (1 - w[7]) * (1 - deltaDifficulty / 9.0);
+                    for (int k = 0; k < NUM_PARAMETERS; k++) {
+                        this.gD[k] *= dDdD;
+                    }
+                    this.gD[4] += w[7] * dEasyDW4;
+                    this.gD[5] += w[7] * dEasyDW5;
+                    this.gD[6] += (1 - w[7]) * (10.0 - d) / 9.0 * (-(rating - 3));
+                    this.gD[7] += easyInitialDifficulty - dampedDifficulty;
+                }
+
+                s = nextS;
+                d = nextD;
+                System.arraycopy(this.nextGS, 0, this.gS, 0, NUM_PARAMETERS);
+            }
+        }
+    }
+
+    /*
+    simulates learning a deck with the given parameters at each candidate desired retention and
+    returns the one with the lowest review time per unit of retained knowledge
+
+    review times come from the logs' reviewDurations, averaged per rating
+    */
+    public double computeOptimalRetention(@NonNull double[] parameters) {
+
+        double[] firstRatingProbabilities = new double[4];
+        double[] recallRatingProbabilities = new double[4];
+        double[] firstDurations = new double[4];
+        double[] reviewDurations = new double[4];
+        double[] firstDurationCounts = new double[4];
+        double[] reviewDurationCounts = new double[4];
+
+        for (int card = 0; card < getNumCards(); card++) {
+            for (int i = this.cardOffsets[card]; i < this.cardOffsets[card + 1]; i++) {
+
+                int rating = this.ratings[i] - 1;
+                boolean first = i == this.cardOffsets[card];
+
+                if (first) {
+                    firstRatingProbabilities[rating]++;
+                } else if (rating > 0) {
+                    recallRatingProbabilities[rating]++;
+                }
+
+                if (this.reviewDurations[i] >= 0) {
+                    if (first) {
+                        firstDurations[rating] += this.reviewDurations[i];
+                        firstDurationCounts[rating]++;
+                    } else {
+                        reviewDurations[rating] += this.reviewDurations[i];
+                        reviewDurationCounts[rating]++;
+                    }
+                }
+            }
+        }
+
+        normalize(firstRatingProbabilities);
+        normalize(recallRatingProbabilities);
+        for (int rating = 0; rating < 4; rating++) {
+            firstDurations[rating] =
+                    firstDurationCounts[rating] == 0
+                            ? DEFAULT_REVIEW_DURATION_MILLIS
+                            : firstDurations[rating] / firstDurationCounts[rating];
+            reviewDurations[rating] =
+                    reviewDurationCounts[rating] == 0
+                            ? DEFAULT_REVIEW_DURATION_MILLIS
+                            : reviewDurations[rating] / reviewDurationCounts[rating];
+        }
+
+        double optimalRetention = CANDIDATE_RETENTIONS[0];
+        double lowestCost = Double.POSITIVE_INFINITY;
+
+        for (double desiredRetention : CANDIDATE_RETENTIONS) {
+
+            Scheduler scheduler =
+                    Scheduler.builder()
+                            .parameters(parameters)
+                            .desiredRetention(desiredRetention)
+                            .enableFuzzing(false)
+                            .build();
+
+            double cost =
+                    simulateCostPerKnowledge(
+                            scheduler,
+                            firstRatingProbabilities,
+                            recallRatingProbabilities,
+                            firstDurations,
+                            reviewDurations);
+
+            if (cost < lowestCost) {
+                lowestCost = cost;
+                optimalRetention = desiredRetention;
+            }
+        }
+
+        return optimalRetention;
+    }
+
+    private static void normalize(double[] counts) {
+
+        double total = 0;
+        for (double count : counts) {
+            total += count;
+        }
+
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = total == 0 ? 1.0 / counts.length : counts[i] / total;
+        }
+    }
+
+    private static Rating sampleRating(double[] probabilities, double u) {
+
+        Rating[] ratings = Rating.values();
+        double cumulative = 0;
+        for (int rating = 0; rating < probabilities.length; rating++) {
+            cumulative += probabilities[rating];
+            if (u < cumulative) {
+                return ratings[rating];
+            }
+        }
+
+        return ratings[probabilities.length - 1];
+    }
+
+    private static double simulateCostPerKnowledge(
+            Scheduler scheduler,
+            double[] firstRatingProbabilities,
+            double[] recallRatingProbabilities,
+            double[] firstDurations,
+            double[] reviewDurations) {
+
+        double decay = -scheduler.getParameterVector().get(20);
+        double factor = Math.pow(0.9, 1.0 / decay) - 1;
+
+        // ratings given when a card is recalled
+        double[] passingRatingProbabilities = recallRatingProbabilities.clone();
+        passingRatingProbabilities[0] = 0;
+        normalize(passingRatingProbabilities);
+
+        Random random = new Random(RANDOM_SEED);
+        long end = SIMULATION_DAYS * MILLIS_PER_DAY;
+
+        double cost = 0;
+        double knowledge = 0;
+        CardState card = new CardState();
+
+        for (int c = 0; c < NUM_CARDS_SIMULATE; c++) {
+
+            card.setCardId(c);
+            card.setState(State.LEARNING);
+            card.setStep(0);
+            card.setStability(Double.NaN);
+            card.setDifficulty(Double.NaN);
+            card.setLastReviewEpochMillis(CardState.NO_LAST_REVIEW);
+
+            Rating rating = sampleRating(firstRatingProbabilities, random.nextDouble());
+            cost += firstDurations[rating.getValue() - 1];
+            scheduler.reviewCard(card, rating, 0);
+
+            while (card.getDueEpochMillis() < end) {
+
+                long now = card.getDueEpochMillis();
+                double retrievability = retrievability(card, now, factor, decay);
+
+                if (random.nextDouble() < retrievability) {
+                    rating = sampleRating(passingRatingProbabilities, random.nextDouble());
+                } else {
+                    rating = Rating.AGAIN;
+                }
+
+                cost += reviewDurations[rating.getValue() - 1];
+                scheduler.reviewCard(card, rating, now);
+            }
+
+            knowledge += retrievability(card, end, factor, decay);
+        }
+
+        return cost / knowledge;
+    }
+
+    private static double retrievability(
+            CardState card, long currentEpochMillis, double factor, double decay) {
+
+        long elapsedDays =
+                Math.max(
+                        0, (currentEpochMillis - card.getLastReviewEpochMillis()) / MILLIS_PER_DAY);
+
+        return Math.pow(1 + factor * elapsedDays / card.getStability(), decay);
+    }
+}
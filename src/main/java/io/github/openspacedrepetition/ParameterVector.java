@@ -0,0 +1,53 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import java.util.Arrays;
+import java.util.stream.DoubleStream;
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+
+/*
+a read-only view of a Scheduler's parameters
+
+unlike Scheduler.getParameters, which returns a new copy on every call, a ParameterVector can
+be read without copying and shared freely between threads
+*/
+@EqualsAndHashCode
+public final class ParameterVector {
+
+    private final double[] values;
+
+    /*
+    takes ownership of values, which must not be changed afterwards
+    */
+    ParameterVector(double[] values) {
+
+        this.values = values;
+    }
+
+    public static ParameterVector of(@NonNull double... values) {
+
+        return new ParameterVector(values.clone());
+    }
+
+    public double get(int index) {
+        return this.values[index];
+    }
+
+    public int size() {
+        return this.values.length;
+    }
+
+    public double[] toArray() {
+        return this.values.clone();
+    }
+
+    public DoubleStream stream() {
+        return Arrays.stream(this.values);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(this.values);
+    }
+}
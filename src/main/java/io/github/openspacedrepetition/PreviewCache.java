@@ -0,0 +1,111 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.NonNull;
+
+/*
+a bounded, least-recently-used cache of Scheduler.preview results keyed by the card's cardId,
+memory state (state, step, stability and difficulty) and lastReview
+
+a card's previewed memory states and intervals only change when its memory state changes (by a
+review, a reschedule or an edit) or a day boundary passes since its last review, so a cached
+preview is reused for any reviewDatetime on the same number of days since the card's last
+review, with its due dates moved to the new reviewDatetime. when the scheduler fuzzes previews
+the fuzz depends on the exact reviewDatetime, so a cached preview is then only reused for the
+reviewDatetime it was computed at
+*/
+public class PreviewCache {
+
+    private record Key(
+            int cardId,
+            State state,
+            Integer step,
+            Double stability,
+            Double difficulty,
+            Instant lastReview) {
+
+        private Key(Card card) {
+            this(
+                    card.getCardId(),
+                    card.getState(),
+                    card.getStep(),
+                    card.getStability(),
+                    card.getDifficulty(),
+                    card.getLastReview());
+        }
+    }
+
+    private final Scheduler scheduler;
+    private final LinkedHashMap<Key, ReviewPreview> previews;
+
+    public PreviewCache(@NonNull Scheduler scheduler, int maximumSize) {
+
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+
+        this.scheduler = scheduler;
+        this.previews =
+                new LinkedHashMap<>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Key, ReviewPreview> eldest) {
+                        return size() > maximumSize;
+                    }
+                };
+    }
+
+    public ReviewPreview preview(@NonNull Card card, @NonNull Instant reviewDatetime) {
+
+        Key key = new Key(card);
+
+        synchronized (this) {
+            ReviewPreview preview = this.previews.get(key);
+            if (preview != null) {
+                if (preview.getReviewDatetime().equals(reviewDatetime)) {
+                    return preview;
+                }
+                if (!this.scheduler.fuzzesPreview()
+                        && sameElapsedDays(card, preview, reviewDatetime)) {
+                    return preview.at(reviewDatetime);
+                }
+            }
+        }
+
+        ReviewPreview preview = this.scheduler.preview(card, reviewDatetime);
+
+        synchronized (this) {
+            this.previews.put(key, preview);
+        }
+
+        return preview;
+    }
+
+    private boolean sameElapsedDays(Card card, ReviewPreview preview, Instant reviewDatetime) {
+
+        // a card that was never reviewed is always previewed with 0 elapsed days
+        if (card.getLastReview() == null) {
+            return true;
+        }
+
+        return this.scheduler.daysBetween(card.getLastReview(), preview.getReviewDatetime())
+                == this.scheduler.daysBetween(card.getLastReview(), reviewDatetime);
+    }
+
+    public synchronized void invalidate(int cardId) {
+
+        this.previews.keySet().removeIf(key -> key.cardId() == cardId);
+    }
+
+    public synchronized void clear() {
+
+        this.previews.clear();
+    }
+
+    public synchronized int size() {
+
+        return this.previews.size();
+    }
+}
@@ -0,0 +1,203 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import lombok.NonNull;
+
+/*
+reschedules a whole collection from its review history with Scheduler.rescheduleCard
+
+the review logs are read as a stream in which each card's logs are adjacent (e.g. an export
+sorted by cardId), grouped into per-card histories, and rescheduled partitionSize cards at a
+time in parallel on a fork-join pool. the rescheduled cards are returned lazily in input order,
+so memory use is bounded by the partition size rather than the size of the collection
+
+since the input only has review logs, each card is rebuilt from a new card with its cardId.
+partitions are rescheduled in parallel, so the Scheduler must use deterministicFuzzing or no
+fuzzing for the result not to depend on thread interleaving
+*/
+public class Rescheduler {
+
+    private static final int DEFAULT_PARTITION_SIZE = 4096;
+    private static final int SPLIT_THRESHOLD = 64;
+
+    private final Scheduler scheduler;
+    private final ForkJoinPool pool;
+    private final int partitionSize;
+
+    public Rescheduler(@NonNull Scheduler scheduler) {
+
+        this(scheduler, ForkJoinPool.commonPool(), DEFAULT_PARTITION_SIZE);
+    }
+
+    public Rescheduler(
+            @NonNull Scheduler scheduler, @NonNull ForkJoinPool pool, int partitionSize) {
+
+        if (partitionSize < 1) {
+            throw new IllegalArgumentException("partitionSize must be positive");
+        }
+        if (!scheduler.hasReproducibleFuzz()) {
+            throw new IllegalArgumentException(
+                    "scheduler must use deterministicFuzzing or no fuzzing");
+        }
+
+        this.scheduler = scheduler;
+        this.pool = pool;
+        this.partitionSize = partitionSize;
+    }
+
+    /*
+    the input stream is consumed as the returned stream is, and closed with it
+    */
+    public Stream<Card> rescheduleCards(@NonNull Stream<ReviewLog> reviewLogs) {
+
+        Iterator<Card> cards = new RescheduledCards(new Histories(reviewLogs.iterator()));
+
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(
+                                cards, Spliterator.ORDERED | Spliterator.NONNULL),
+                        false)
+                .onClose(reviewLogs::close);
+    }
+
+    /*
+    groups runs of review logs with the same cardId
+    */
+    private static final class Histories implements Iterator<List<ReviewLog>> {
+
+        private final Iterator<ReviewLog> reviewLogs;
+        private ReviewLog pending;
+
+        private Histories(Iterator<ReviewLog> reviewLogs) {
+
+            this.reviewLogs = reviewLogs;
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            return this.pending != null || this.reviewLogs.hasNext();
+        }
+
+        @Override
+        public List<ReviewLog> next() {
+
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            ReviewLog first = this.pending != null ? this.pending : this.reviewLogs.next();
+            this.pending = null;
+
+            List<ReviewLog> history = new ArrayList<>();
+            history.add(first);
+
+            while (this.reviewLogs.hasNext()) {
+
+                ReviewLog reviewLog = this.reviewLogs.next();
+                if (reviewLog.cardId() != first.cardId()) {
+                    this.pending = reviewLog;
+                    break;
+                }
+                history.add(reviewLog);
+            }
+
+            return history;
+        }
+    }
+
+    private final class RescheduledCards implements Iterator<Card> {
+
+        private final Histories histories;
+        private final List<List<ReviewLog>> partition = new ArrayList<>();
+        private Card[] cards = new Card[0];
+        private int position;
+
+        private RescheduledCards(Histories histories) {
+
+            this.histories = histories;
+        }
+
+        @Override
+        public boolean hasNext() {
+
+            if (this.position < this.cards.length) {
+                return true;
+            }
+
+            this.partition.clear();
+            while (this.partition.size() < Rescheduler.this.partitionSize
+                    && this.histories.hasNext()) {
+                this.partition.add(this.histories.next());
+            }
+
+            this.cards = new Card[this.partition.size()];
+            this.position = 0;
+            Rescheduler.this.pool.invoke(
+                    new PartitionTask(this.partition, this.cards, 0, this.cards.length));
+
+            return this.cards.length > 0;
+        }
+
+        @Override
+        public Card next() {
+
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            Card card = this.cards[this.position];
+            this.cards[this.position++] = null;
+
+            return card;
+        }
+    }
+
+    private final class PartitionTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<List<ReviewLog>> histories;
+        private final Card[] cards;
+        private final int from;
+        private final int to;
+
+        private PartitionTask(List<List<ReviewLog>> histories, Card[] cards, int from, int to) {
+
+            this.histories = histories;
+            this.cards = cards;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (this.to - this.from <= SPLIT_THRESHOLD) {
+
+                for (int i = this.from; i < this.to; i++) {
+
+                    List<ReviewLog> history = this.histories.get(i);
+                    Card card = Card.builder().cardId(history.get(0).cardId()).build();
+                    this.cards[i] = Rescheduler.this.scheduler.rescheduleCard(card, history);
+                }
+
+                return;
+            }
+
+            int middle = (this.from + this.to) >>> 1;
+            invokeAll(
+                    new PartitionTask(this.histories, this.cards, this.from, middle),
+                    new PartitionTask(this.histories, this.cards, middle, this.to));
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import java.time.Instant;
+
+/*
+columnar result of Scheduler.reviewCards
+
+the reviewed cards' scheduling state is kept in primitive arrays, Card and ReviewLog
+objects are only created when requested through getCard and getReviewLog
+*/
+public final class ReviewBatch {
+
+    private static final State[] STATES = State.values();
+
+    private final int[] cardIds;
+    private final Rating[] ratings;
+    private final Instant[] reviewDatetimes;
+    private final Integer[] reviewDurations;
+
+    private final byte[] states;
+    private final int[] steps;
+    private final double[] stabilities;
+    private final double[] difficulties;
+    private final long[] intervalsMillis;
+
+    ReviewBatch(Rating[] ratings, Integer[] reviewDurations) {
+
+        int size = ratings.length;
+
+        this.cardIds = new int[size];
+        this.ratings = ratings.clone();
+        this.reviewDatetimes = new Instant[size];
+        this.reviewDurations = reviewDurations == null ? null : reviewDurations.clone();
+
+        this.states = new byte[size];
+        this.steps = new int[size];
+        this.stabilities = new double[size];
+        this.difficulties = new double[size];
+        this.intervalsMillis = new long[size];
+    }
+
+    void set(int index, CardState cardState, Instant reviewDatetime, long intervalMillis) {
+
+        this.cardIds[index] = cardState.getCardId();
+        this.reviewDatetimes[index] = reviewDatetime;
+        this.states[index] = (byte) cardState.getState().ordinal();
+        this.steps[index] = cardState.getStep();
+        this.stabilities[index] = cardState.getStability();
+        this.difficulties[index] = cardState.getDifficulty();
+        this.intervalsMillis[index] = intervalMillis;
+    }
+
+    public int size() {
+        return this.cardIds.length;
+    }
+
+    public int getCardId(int index) {
+        return this.cardIds[index];
+    }
+
+    public State getState(int index) {
+        return STATES[this.states[index]];
+    }
+
+    public Integer getStep(int index) {
+        return this.steps[index] == CardState.NO_STEP ? null : this.steps[index];
+    }
+
+    public double getStability(int index) {
+        return this.stabilities[index];
+    }
+
+    public double getDifficulty(int index) {
+        return this.difficulties[index];
+    }
+
+    public Instant getLastReview(int index) {
+        return this.reviewDatetimes[index];
+    }
+
+    public Instant getDue(int index) {
+        return this.reviewDatetimes[index].plusMillis(this.intervalsMillis[index]);
+    }
+
+    public Card getCard(int index) {
+
+        return Card.builder()
+                .cardId(getCardId(index))
+                .state(getState(index))
+                .step(getStep(index))
+                .stability(getStability(index))
+                .difficulty(getDifficulty(index))
+                .due(getDue(index))
+                .lastReview(getLastReview(index))
+                .build();
+    }
+
+    public ReviewLog getReviewLog(int index) {
+
+        return new ReviewLog(
+                getCardId(index),
+                this.ratings[index],
+                this.reviewDatetimes[index],
+                this.reviewDurations == null ? null : this.reviewDurations[index]);
+    }
+}
@@ -3,10 +3,12 @@ package io.github.openspacedrepetition;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
 import lombok.NonNull;
 
 public record ReviewLog(
@@ -26,21 +28,38 @@ public record ReviewLog(
 
     public String toJson() {
 
-        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
-
-        try {
-            return mapper.writeValueAsString(this);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException();
-        }
+        return Json.write(Json.REVIEW_LOG_WRITER, this);
     }
 
     public static ReviewLog fromJson(@NonNull String json) {
-        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
-        try {
-            return mapper.readValue(json, ReviewLog.class);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException(e);
-        }
+
+        return Json.read(Json.REVIEW_LOG_READER, json);
+    }
+
+    public static String toJson(@NonNull List<ReviewLog> reviewLogs) {
+
+        return Json.write(Json.REVIEW_LOG_LIST_WRITER, reviewLogs);
+    }
+
+    public static List<ReviewLog> listFromJson(@NonNull String json) {
+
+        return Json.read(Json.REVIEW_LOG_LIST_READER, json);
+    }
+
+    /*
+    writes the reviewLogs to out as a json array, one element at a time
+    */
+    public static void toJson(@NonNull Iterable<ReviewLog> reviewLogs, @NonNull Writer out)
+            throws IOException {
+
+        Json.writeArray(Json.REVIEW_LOG_WRITER, reviewLogs.iterator(), out);
+    }
+
+    /*
+    lazily reads a json array of reviewLogs, closing the stream closes in
+    */
+    public static Stream<ReviewLog> streamFromJson(@NonNull Reader in) {
+
+        return Json.readArray(Json.REVIEW_LOG_READER, in);
     }
 }
@@ -0,0 +1,631 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+
+/*
+an append-only, columnar file of review logs, for scanning large review histories
+
+logs are written through an Appender in blocks of up to blockSize logs. each block stores its
+columns one after another: cardIds and review times (epoch milliseconds) as zigzag varint
+deltas from the previous log, ratings packed 2 bits each, and review durations as a null bitmap
+followed by varints of the present values. a block header holds the cardId and review time
+ranges of the block, so readers can skip blocks outside the range they scan
+
+opening an archive reads only the block headers, the blocks are memory-mapped and decoded when
+their columns are requested, and a block whose column sizes do not add up to its size ends the
+archive like an incomplete one. review times are kept with millisecond precision
+
+file layout (little-endian):
+header (16 bytes): magic int, version int, reserved long
+block header (48 bytes): block bytes int, size int, min cardId int, max cardId int,
+                         min review time long, max review time long, cardId column bytes int,
+                         review time column bytes int, review duration column bytes int,
+                         reserved int
+*/
+public class ReviewLogArchive implements Closeable {
+
+    private static final int MAGIC = 0x46535241; // "FSRA"
+    private static final int VERSION = 1;
+
+    static final int HEADER_BYTES = 16;
+    static final int BLOCK_HEADER_BYTES = 48;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+
+    private static final int BLOCK_BYTES_OFFSET = 0;
+    private static final int SIZE_OFFSET = 4;
+    private static final int MIN_CARD_ID_OFFSET = 8;
+    private static final int MAX_CARD_ID_OFFSET = 12;
+    private static final int MIN_REVIEW_TIME_OFFSET = 16;
+    private static final int MAX_REVIEW_TIME_OFFSET = 24;
+    private static final int CARD_ID_BYTES_OFFSET = 32;
+    private static final int REVIEW_TIME_BYTES_OFFSET = 36;
+    private static final int REVIEW_DURATION_BYTES_OFFSET = 40;
+
+    private static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+    private static final int MAX_INT_VARINT_BYTES = 5;
+    private static final int MAX_LONG_VARINT_BYTES = 10;
+
+    private static final Rating[] RATINGS = Rating.values();
+
+    private final FileChannel channel;
+    @Getter private final List<Block> blocks;
+
+    private ReviewLogArchive(FileChannel channel) throws IOException {
+
+        this.channel = channel;
+        this.blocks = Collections.unmodifiableList(readBlocks(channel, this));
+    }
+
+    public static ReviewLogArchive open(@NonNull Path path) throws IOException {
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+            return new ReviewLogArchive(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static Appender appender(@NonNull Path path) throws IOException {
+
+        return appender(path, DEFAULT_BLOCK_SIZE);
+    }
+
+    /*
+    appends to the archive at path, creating it if it does not exist. a block left incomplete
+    by an interrupted write is discarded
+    */
+    public static Appender appender(@NonNull Path path, int blockSize) throws IOException {
+
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be positive");
+        }
+
+        FileChannel channel =
+                FileChannel.open(
+                        path,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+
+        try {
+            return new Appender(channel, blockSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /*
+    reads the file header and block headers, returning the complete blocks and leaving out a
+    trailing incomplete one
+    */
+    private static List<Block> readBlocks(FileChannel channel, ReviewLogArchive archive)
+            throws IOException {
+
+        long fileSize = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+        if (fileSize < HEADER_BYTES
+                || readFully(channel, header.limit(HEADER_BYTES), 0).getInt(MAGIC_OFFSET) != MAGIC
+                || header.getInt(VERSION_OFFSET) != VERSION) {
+            throw new IOException("not a review log archive (version " + VERSION + ")");
+        }
+
+        List<Block> blocks = new ArrayList<>();
+        long position = HEADER_BYTES;
+
+        while (position + BLOCK_HEADER_BYTES <= fileSize) {
+
+            readFully(channel, header.clear(), position);
+
+            int blockBytes = header.getInt(BLOCK_BYTES_OFFSET);
+            if (blockBytes < BLOCK_HEADER_BYTES || position + blockBytes > fileSize) {
+                break;
+            }
+
+            Block block = new Block(archive, position, header);
+            if (!block.isValid()) {
+                break;
+            }
+
+            blocks.add(block);
+            position += blockBytes;
+        }
+
+        return blocks;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, ByteBuffer buffer, long position)
+            throws IOException {
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("unexpected end of review log archive");
+            }
+        }
+
+        return buffer.flip();
+    }
+
+    public long size() {
+
+        long size = 0;
+        for (Block block : this.blocks) {
+            size += block.size();
+        }
+
+        return size;
+    }
+
+    /*
+    the blocks that may hold logs with minCardId <= cardId <= maxCardId and
+    from <= reviewDatetime < to
+    */
+    public List<Block> getBlocks(int minCardId, int maxCardId, Instant from, Instant to) {
+
+        long fromMillis = toEpochMilli(from);
+        long toMillis = toEpochMilli(to);
+
+        List<Block> blocks = new ArrayList<>();
+        for (Block block : this.blocks) {
+            if (block.getMaxCardId() >= minCardId
+                    && block.getMinCardId() <= maxCardId
+                    && block.getMaxReviewEpochMillis() >= fromMillis
+                    && block.getMinReviewEpochMillis() < toMillis) {
+                blocks.add(block);
+            }
+        }
+
+        return blocks;
+    }
+
+    // clamped so Instant.MIN and Instant.MAX can be used as open bounds
+    private static long toEpochMilli(Instant instant) {
+
+        if (instant.getEpochSecond() < Long.MIN_VALUE / 1000) {
+            return Long.MIN_VALUE;
+        }
+        if (instant.getEpochSecond() >= Long.MAX_VALUE / 1000) {
+            return Long.MAX_VALUE;
+        }
+
+        return instant.toEpochMilli();
+    }
+
+    /*
+    all review logs in the order they were appended, decoded one block at a time
+    */
+    public Stream<ReviewLog> stream() {
+
+        return this.blocks.stream().flatMap(Block::stream);
+    }
+
+    public Stream<ReviewLog> stream(int minCardId, int maxCardId, Instant from, Instant to) {
+
+        long fromMillis = toEpochMilli(from);
+        long toMillis = toEpochMilli(to);
+
+        return getBlocks(minCardId, maxCardId, from, to).stream()
+                .flatMap(
+                        block ->
+                                block
+                                        .reviewLogs(minCardId, maxCardId, fromMillis, toMillis)
+                                        .stream());
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /*
+    a block of the archive. its columns are decoded from the mapped file on each call
+    */
+    @Getter
+    public static final class Block {
+
+        @Getter(AccessLevel.NONE)
+        private final ReviewLogArchive archive;
+
+        @Getter(AccessLevel.NONE)
+        private final long position;
+
+        @Getter(AccessLevel.NONE)
+        private final int blockBytes;
+
+        @Getter(AccessLevel.NONE)
+        private final int size;
+
+        private final int minCardId;
+        private final int maxCardId;
+        private final long minReviewEpochMillis;
+        private final long maxReviewEpochMillis;
+
+        @Getter(AccessLevel.NONE)
+        private final int cardIdBytes;
+
+        @Getter(AccessLevel.NONE)
+        private final int reviewTimeBytes;
+
+        @Getter(AccessLevel.NONE)
+        private final int reviewDurationBytes;
+
+        private Block(ReviewLogArchive archive, long position, ByteBuffer header) {
+
+            this.archive = archive;
+            this.position = position;
+            this.blockBytes = header.getInt(BLOCK_BYTES_OFFSET);
+            this.size = header.getInt(SIZE_OFFSET);
+            this.minCardId = header.getInt(MIN_CARD_ID_OFFSET);
+            this.maxCardId = header.getInt(MAX_CARD_ID_OFFSET);
+            this.minReviewEpochMillis = header.getLong(MIN_REVIEW_TIME_OFFSET);
+            this.maxReviewEpochMillis = header.getLong(MAX_REVIEW_TIME_OFFSET);
+            this.cardIdBytes = header.getInt(CARD_ID_BYTES_OFFSET);
+            this.reviewTimeBytes = header.getInt(REVIEW_TIME_BYTES_OFFSET);
+            this.reviewDurationBytes = header.getInt(REVIEW_DURATION_BYTES_OFFSET);
+        }
+
+        /*
+        whether the column sizes in the header add up to the block size
+        */
+        private boolean isValid() {
+
+            return this.size >= 0
+                    && this.cardIdBytes >= 0
+                    && this.reviewTimeBytes >= 0
+                    && this.reviewDurationBytes >= bitmapBytes(this.size)
+                    && (long) BLOCK_HEADER_BYTES
+                                    + this.cardIdBytes
+                                    + this.reviewTimeBytes
+                                    + ratingBytes(this.size)
+                                    + this.reviewDurationBytes
+                            == this.blockBytes;
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        private ByteBuffer map() {
+
+            try {
+                return this.archive
+                        .channel
+                        .map(FileChannel.MapMode.READ_ONLY, this.position, this.blockBytes)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        public int[] getCardIds() {
+            return readCardIds(map());
+        }
+
+        public long[] getReviewEpochMillis() {
+            return readReviewEpochMillis(map());
+        }
+
+        public Rating[] getRatings() {
+
+            ByteBuffer block = map();
+
+            Rating[] ratings = new Rating[this.size];
+            for (int i = 0; i < this.size; i++) {
+                ratings[i] = readRating(block, i);
+            }
+
+            return ratings;
+        }
+
+        /*
+        null where the log has no reviewDuration
+        */
+        public Integer[] getReviewDurations() {
+            return readReviewDurations(map());
+        }
+
+        public List<ReviewLog> reviewLogs() {
+
+            return reviewLogs(Integer.MIN_VALUE, Integer.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE);
+        }
+
+        public Stream<ReviewLog> stream() {
+
+            return Stream.of(this).flatMap(block -> block.reviewLogs().stream());
+        }
+
+        /*
+        the logs with minCardId <= cardId <= maxCardId and fromMillis <= review time < toMillis,
+        filtered on the cardId and review time columns so only the matching logs are built
+        */
+        private List<ReviewLog> reviewLogs(
+                int minCardId, int maxCardId, long fromMillis, long toMillis) {
+
+            ByteBuffer block = map();
+            int[] cardIds = readCardIds(block);
+            long[] reviewEpochMillis = readReviewEpochMillis(block);
+            Integer[] reviewDurations = null;
+
+            List<ReviewLog> reviewLogs = new ArrayList<>();
+            for (int i = 0; i < this.size; i++) {
+
+                if (cardIds[i] < minCardId
+                        || cardIds[i] > maxCardId
+                        || reviewEpochMillis[i] < fromMillis
+                        || reviewEpochMillis[i] >= toMillis) {
+                    continue;
+                }
+
+                if (reviewDurations == null) {
+                    reviewDurations = readReviewDurations(block);
+                }
+
+                reviewLogs.add(
+                        new ReviewLog(
+                                cardIds[i],
+                                readRating(block, i),
+                                Instant.ofEpochMilli(reviewEpochMillis[i]),
+                                reviewDurations[i]));
+            }
+
+            return reviewLogs;
+        }
+
+        private int[] readCardIds(ByteBuffer block) {
+
+            ByteBuffer column = block.duplicate().position(BLOCK_HEADER_BYTES);
+
+            int[] cardIds = new int[this.size];
+            int cardId = 0;
+            for (int i = 0; i < this.size; i++) {
+                cardId += (int) BinaryCodec.readVarint(column);
+                cardIds[i] = cardId;
+            }
+
+            return cardIds;
+        }
+
+        private long[] readReviewEpochMillis(ByteBuffer block) {
+
+            ByteBuffer column = block.duplicate().position(BLOCK_HEADER_BYTES + this.cardIdBytes);
+
+            long[] reviewEpochMillis = new long[this.size];
+            long reviewTime = 0;
+            for (int i = 0; i < this.size; i++) {
+                reviewTime += BinaryCodec.readVarint(column);
+                reviewEpochMillis[i] = reviewTime;
+            }
+
+            return reviewEpochMillis;
+        }
+
+        private Rating readRating(ByteBuffer block, int i) {
+
+            int offset = BLOCK_HEADER_BYTES + this.cardIdBytes + this.reviewTimeBytes;
+
+            return RATINGS[(block.get(offset + (i >>> 2)) >>> ((i & 3) << 1)) & 3];
+        }
+
+        private Integer[] readReviewDurations(ByteBuffer block) {
+
+            int offset =
+                    BLOCK_HEADER_BYTES
+                            + this.cardIdBytes
+                            + this.reviewTimeBytes
+                            + ratingBytes(this.size);
+            ByteBuffer values =
+                    block.duplicate()
+                            .position(offset + bitmapBytes(this.size))
+                            .limit(offset + this.reviewDurationBytes);
+
+            Integer[] reviewDurations = new Integer[this.size];
+            for (int i = 0; i < this.size; i++) {
+                if ((block.get(offset + (i >>> 3)) & (1 << (i & 7))) != 0) {
+                    reviewDurations[i] = (int) BinaryCodec.readVarint(values);
+                }
+            }
+
+            return reviewDurations;
+        }
+    }
+
+    private static int ratingBytes(int size) {
+        return (size + 3) >>> 2;
+    }
+
+    private static int bitmapBytes(int size) {
+        return (size + 7) >>> 3;
+    }
+
+    /*
+    buffers review logs and appends them to the archive a block at a time. flush writes the
+    buffered logs as a (possibly short) block, close flushes and closes the file
+    */
+    public static final class Appender implements Closeable, Flushable {
+
+        private final FileChannel channel;
+        private final int blockSize;
+        private final int[] cardIds;
+        private final long[] reviewEpochMillis;
+        private final Rating[] ratings;
+        private final Integer[] reviewDurations;
+        private final ByteBuffer block;
+        private long position;
+        private int size;
+
+        private Appender(FileChannel channel, int blockSize) throws IOException {
+
+            this.channel = channel;
+            this.blockSize = blockSize;
+            this.cardIds = new int[blockSize];
+            this.reviewEpochMillis = new long[blockSize];
+            this.ratings = new Rating[blockSize];
+            this.reviewDurations = new Integer[blockSize];
+            this.block =
+                    ByteBuffer.allocate(
+                                    BLOCK_HEADER_BYTES
+                                            + blockSize
+                                                    * (2 * MAX_INT_VARINT_BYTES
+                                                            + MAX_LONG_VARINT_BYTES)
+                                            + ratingBytes(blockSize)
+                                            + bitmapBytes(blockSize))
+                            .order(ByteOrder.LITTLE_ENDIAN);
+
+            if (channel.size() == 0) {
+
+                ByteBuffer header =
+                        ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC_OFFSET, MAGIC).putInt(VERSION_OFFSET, VERSION);
+                writeFully(header, 0);
+                this.position = HEADER_BYTES;
+
+            } else {
+
+                List<Block> blocks = readBlocks(channel, null);
+                this.position = HEADER_BYTES;
+                for (Block block : blocks) {
+                    this.position += block.blockBytes;
+                }
+                channel.truncate(this.position);
+            }
+        }
+
+        public void write(@NonNull ReviewLog reviewLog) throws IOException {
+
+            this.cardIds[this.size] = reviewLog.cardId();
+            this.reviewEpochMillis[this.size] = reviewLog.reviewDatetime().toEpochMilli();
+            this.ratings[this.size] = reviewLog.rating();
+            this.reviewDurations[this.size] = reviewLog.reviewDuration();
+            this.size++;
+
+            if (this.size == this.blockSize) {
+                flush();
+            }
+        }
+
+        public void writeAll(@NonNull Iterable<ReviewLog> reviewLogs) throws IOException {
+
+            for (ReviewLog reviewLog : reviewLogs) {
+                write(reviewLog);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+
+            if (this.size == 0) {
+                return;
+            }
+
+            ByteBuffer block = this.block.clear();
+            block.position(BLOCK_HEADER_BYTES);
+
+            int minCardId = Integer.MAX_VALUE;
+            int maxCardId = Integer.MIN_VALUE;
+            int previousCardId = 0;
+            for (int i = 0; i < this.size; i++) {
+                int cardId = this.cardIds[i];
+                minCardId = Math.min(minCardId, cardId);
+                maxCardId = Math.max(maxCardId, cardId);
+                BinaryCodec.writeVarint(block, cardId - previousCardId);
+                previousCardId = cardId;
+            }
+            int cardIdBytes = block.position() - BLOCK_HEADER_BYTES;
+
+            long minReviewTime = Long.MAX_VALUE;
+            long maxReviewTime = Long.MIN_VALUE;
+            long previousReviewTime = 0;
+            for (int i = 0; i < this.size; i++) {
+                long reviewTime = this.reviewEpochMillis[i];
+                minReviewTime = Math.min(minReviewTime, reviewTime);
+                maxReviewTime = Math.max(maxReviewTime, reviewTime);
+                BinaryCodec.writeVarint(block, reviewTime - previousReviewTime);
+                previousReviewTime = reviewTime;
+            }
+            int reviewTimeBytes = block.position() - BLOCK_HEADER_BYTES - cardIdBytes;
+
+            int ratingsOffset = block.position();
+            for (int i = 0; i < ratingBytes(this.size); i++) {
+                block.put((byte) 0);
+            }
+            for (int i = 0; i < this.size; i++) {
+                int index = ratingsOffset + (i >>> 2);
+                block.put(
+                        index,
+                        (byte) (block.get(index) | this.ratings[i].ordinal() << ((i & 3) << 1)));
+            }
+
+            int bitmapOffset = block.position();
+            int reviewDurationBytes = bitmapBytes(this.size);
+            for (int i = 0; i < reviewDurationBytes; i++) {
+                block.put((byte) 0);
+            }
+            for (int i = 0; i < this.size; i++) {
+                if (this.reviewDurations[i] != null) {
+                    int index = bitmapOffset + (i >>> 3);
+                    block.put(index, (byte) (block.get(index) | 1 << (i & 7)));
+                    BinaryCodec.writeVarint(block, this.reviewDurations[i]);
+                }
+            }
+            reviewDurationBytes = block.position() - bitmapOffset;
+
+            int blockBytes = block.position();
+            block.putInt(BLOCK_BYTES_OFFSET, blockBytes)
+                    .putInt(SIZE_OFFSET, this.size)
+                    .putInt(MIN_CARD_ID_OFFSET, minCardId)
+                    .putInt(MAX_CARD_ID_OFFSET, maxCardId)
+                    .putLong(MIN_REVIEW_TIME_OFFSET, minReviewTime)
+                    .putLong(MAX_REVIEW_TIME_OFFSET, maxReviewTime)
+                    .putInt(CARD_ID_BYTES_OFFSET, cardIdBytes)
+                    .putInt(REVIEW_TIME_BYTES_OFFSET, reviewTimeBytes)
+                    .putInt(REVIEW_DURATION_BYTES_OFFSET, reviewDurationBytes);
+
+            writeFully(block.flip(), this.position);
+            this.position += blockBytes;
+            this.size = 0;
+            Arrays.fill(this.reviewDurations, null);
+        }
+
+        private void writeFully(ByteBuffer buffer, long position) throws IOException {
+
+            while (buffer.hasRemaining()) {
+                this.channel.write(buffer, position + buffer.position());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            try {
+                flush();
+                this.channel.force(false);
+            } finally {
+                this.channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import lombok.NonNull;
+
+/*
+reads review logs lazily from a character stream, one at a time
+
+ndjson expects one ReviewLog json object per line, as written by ReviewLog.toJson or
+ReviewLogWriter.ndjson. csv expects the FSRS revlog layout with a header row:
+
+card_id,review_time,review_rating,review_state,review_duration
+
+where review_time is in epoch milliseconds, review_rating is 1-4 and review_duration is in
+milliseconds. columns are matched by name, review_state is ignored, review_duration may be
+missing or empty, and rows with review_rating 0 (manual rescheduling) are skipped
+
+only the current review log is held in memory, so exports of any size can be passed straight
+to replay or to the Optimizer through stream()
+*/
+public abstract class ReviewLogReader implements Iterator<ReviewLog>, Closeable {
+
+    static final String CSV_HEADER =
+            "card_id,review_time,review_rating,review_state,review_duration";
+
+    private static final Rating[] RATINGS = Rating.values();
+
+    private ReviewLog next;
+
+    ReviewLogReader() {}
+
+    public static ReviewLogReader ndjson(@NonNull Reader reader) {
+
+        try {
+            return new NdjsonReader(Json.FACTORY.createParser(reader));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static ReviewLogReader csv(@NonNull Reader reader) {
+
+        return new CsvReader(new BufferedReader(reader));
+    }
+
+    /*
+    returns the next review log, or null at the end of the input
+    */
+    abstract ReviewLog read() throws IOException;
+
+    @Override
+    public boolean hasNext() {
+
+        if (this.next == null) {
+            try {
+                this.next = read();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        return this.next != null;
+    }
+
+    @Override
+    public ReviewLog next() {
+
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+
+        ReviewLog reviewLog = this.next;
+        this.next = null;
+
+        return reviewLog;
+    }
+
+    /*
+    a sequential stream over the remaining review logs, closing the stream closes this reader
+    */
+    public Stream<ReviewLog> stream() {
+
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(
+                                this, Spliterator.ORDERED | Spliterator.NONNULL),
+                        false)
+                .onClose(
+                        () -> {
+                            try {
+                                close();
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+    }
+
+    private static Rating rating(int value) {
+
+        if (value < Rating.AGAIN.getValue() || value > Rating.EASY.getValue()) {
+            throw new IllegalArgumentException("invalid rating " + value);
+        }
+
+        return RATINGS[value - 1];
+    }
+
+    private static final class NdjsonReader extends ReviewLogReader {
+
+        private final JsonParser parser;
+
+        private NdjsonReader(JsonParser parser) {
+
+            this.parser = parser;
+        }
+
+        @Override
+        ReviewLog read() throws IOException {
+
+            JsonToken token = this.parser.nextToken();
+            if (token == null) {
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException(
+                        "expected a review log object at " + this.parser.currentLocation());
+            }
+
+            Integer cardId = null;
+            Rating rating = null;
+            Instant reviewDatetime = null;
+            Integer reviewDuration = null;
+
+            while (this.parser.nextToken() == JsonToken.FIELD_NAME) {
+
+                String field = this.parser.currentName();
+                token = this.parser.nextToken();
+
+                switch (field) {
+                    case "cardId" -> cardId = this.parser.getIntValue();
+                    case "rating" -> rating =
+                            token == JsonToken.VALUE_NUMBER_INT
+                                    ? rating(this.parser.getIntValue())
+                                    : Rating.valueOf(this.parser.getText());
+                    case "review_datetime" -> reviewDatetime = Instant.parse(this.parser.getText());
+                    case "reviewDuration" -> reviewDuration =
+                            token == JsonToken.VALUE_NULL ? null : this.parser.getIntValue();
+                    default -> this.parser.skipChildren();
+                }
+            }
+
+            if (cardId == null || rating == null || reviewDatetime == null) {
+                throw new IllegalArgumentException(
+                        "incomplete review log at " + this.parser.currentLocation());
+            }
+
+            return new ReviewLog(cardId, rating, reviewDatetime, reviewDuration);
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            this.parser.close();
+        }
+    }
+
+    private static final class CsvReader extends ReviewLogReader {
+
+        private final BufferedReader reader;
+
+        private int cardIdColumn = -1;
+        private int reviewTimeColumn = -1;
+        private int reviewRatingColumn = -1;
+        private int reviewDurationColumn = -1;
+        private int lineNumber;
+
+        private CsvReader(BufferedReader reader) {
+
+            this.reader = reader;
+        }
+
+        private void readHeader() throws IOException {
+
+            String line = this.reader.readLine();
+            this.lineNumber++;
+            if (line == null) {
+                throw new IllegalArgumentException("missing csv header");
+            }
+
+            String[] columns = line.trim().split(",", -1);
+            for (int i = 0; i < columns.length; i++) {
+                switch (columns[i].trim()) {
+                    case "card_id" -> this.cardIdColumn = i;
+                    case "review_time" -> this.reviewTimeColumn = i;
+                    case "review_rating" -> this.reviewRatingColumn = i;
+                    case "review_duration" -> this.reviewDurationColumn = i;
+                    default -> {}
+                }
+            }
+
+            if (this.cardIdColumn < 0 || this.reviewTimeColumn < 0 || this.reviewRatingColumn < 0) {
+                throw new IllegalArgumentException(
+                        "csv header must contain card_id, review_time and review_rating: " + line);
+            }
+        }
+
+        @Override
+        ReviewLog read() throws IOException {
+
+            if (this.lineNumber == 0) {
+                readHeader();
+            }
+
+            String line;
+            while ((line = this.reader.readLine()) != null) {
+
+                this.lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                String[] values = line.split(",", -1);
+
+                try {
+                    int ratingValue = Integer.parseInt(values[this.reviewRatingColumn].trim());
+                    if (ratingValue == 0) {
+                        continue;
+                    }
+
+                    int cardId = Integer.parseInt(values[this.cardIdColumn].trim());
+                    Instant reviewDatetime =
+                            Instant.ofEpochMilli(
+                                    Long.parseLong(values[this.reviewTimeColumn].trim()));
+
+                    Integer reviewDuration = null;
+                    if (this.reviewDurationColumn >= 0
+                            && this.reviewDurationColumn < values.length
+                            && !values[this.reviewDurationColumn].isBlank()) {
+                        reviewDuration = Integer.parseInt(values[this.reviewDurationColumn].trim());
+                    }
+
+                    return new ReviewLog(
+                            cardId, rating(ratingValue), reviewDatetime, reviewDuration);
+
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException(
+                            "invalid review log on line " + this.lineNumber + ": " + line, e);
+                }
+            }
+
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            this.reader.close();
+        }
+    }
+}
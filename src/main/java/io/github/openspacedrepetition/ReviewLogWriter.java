@@ -0,0 +1,138 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import lombok.NonNull;
+
+/*
+writes review logs one at a time in the formats read by ReviewLogReader
+
+ndjson writes each ReviewLog as the same json object ReviewLog.toJson produces, one per line.
+csv writes the FSRS revlog layout with review_time and review_duration in milliseconds, leaving
+review_state empty since ReviewLog does not record it
+*/
+public abstract class ReviewLogWriter implements Closeable, Flushable {
+
+    ReviewLogWriter() {}
+
+    public static ReviewLogWriter ndjson(@NonNull Writer writer) {
+
+        try {
+            JsonGenerator generator = Json.FACTORY.createGenerator(writer);
+            generator.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+            return new NdjsonWriter(generator);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static ReviewLogWriter csv(@NonNull Writer writer) {
+
+        return new CsvWriter(writer);
+    }
+
+    public abstract void write(@NonNull ReviewLog reviewLog) throws IOException;
+
+    public void writeAll(@NonNull Iterable<ReviewLog> reviewLogs) throws IOException {
+
+        for (ReviewLog reviewLog : reviewLogs) {
+            write(reviewLog);
+        }
+    }
+
+    private static final class NdjsonWriter extends ReviewLogWriter {
+
+        private final JsonGenerator generator;
+        private boolean written;
+
+        private NdjsonWriter(JsonGenerator generator) {
+
+            this.generator = generator;
+        }
+
+        @Override
+        public void write(@NonNull ReviewLog reviewLog) throws IOException {
+
+            this.generator.writeStartObject();
+            this.generator.writeNumberField("cardId", reviewLog.cardId());
+            this.generator.writeStringField("rating", reviewLog.rating().name());
+            this.generator.writeStringField(
+                    "review_datetime", reviewLog.reviewDatetime().toString());
+            if (reviewLog.reviewDuration() == null) {
+                this.generator.writeNullField("reviewDuration");
+            } else {
+                this.generator.writeNumberField("reviewDuration", reviewLog.reviewDuration());
+            }
+            this.generator.writeEndObject();
+            this.written = true;
+        }
+
+        @Override
+        public void flush() throws IOException {
+
+            this.generator.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            if (this.written) {
+                this.generator.writeRaw('\n');
+            }
+            this.generator.close();
+        }
+    }
+
+    private static final class CsvWriter extends ReviewLogWriter {
+
+        private final Writer writer;
+        private boolean headerWritten;
+
+        private CsvWriter(Writer writer) {
+
+            this.writer = writer;
+        }
+
+        @Override
+        public void write(@NonNull ReviewLog reviewLog) throws IOException {
+
+            if (!this.headerWritten) {
+                this.writer.write(ReviewLogReader.CSV_HEADER);
+                this.writer.write('\n');
+                this.headerWritten = true;
+            }
+
+            StringBuilder line = new StringBuilder(48);
+            line.append(reviewLog.cardId())
+                    .append(',')
+                    .append(reviewLog.reviewDatetime().toEpochMilli())
+                    .append(',')
+                    .append(reviewLog.rating().getValue())
+                    .append(",,");
+            if (reviewLog.reviewDuration() != null) {
+                line.append(reviewLog.reviewDuration());
+            }
+            line.append('\n');
+
+            this.writer.write(line.toString());
+        }
+
+        @Override
+        public void flush() throws IOException {
+
+            this.writer.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+
+            this.writer.close();
+        }
+    }
+}
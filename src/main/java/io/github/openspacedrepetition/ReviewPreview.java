@@ -0,0 +1,51 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import java.time.Duration;
+import java.time.Instant;
+import lombok.Getter;
+import lombok.NonNull;
+
+/*
+result of Scheduler.preview, the card as it would be after each of the four ratings
+*/
+public final class ReviewPreview {
+
+    @Getter private final Instant reviewDatetime;
+    private final Card[] cards;
+
+    ReviewPreview(Instant reviewDatetime, Card[] cards) {
+
+        this.reviewDatetime = reviewDatetime;
+        this.cards = cards;
+    }
+
+    public Card getCard(@NonNull Rating rating) {
+        return new Card(this.cards[rating.ordinal()]);
+    }
+
+    public Instant getDue(@NonNull Rating rating) {
+        return this.cards[rating.ordinal()].getDue();
+    }
+
+    public Duration getInterval(@NonNull Rating rating) {
+        return Duration.between(this.reviewDatetime, getDue(rating));
+    }
+
+    /*
+    this preview moved to another reviewDatetime, keeping each rating's memory state and interval
+    */
+    ReviewPreview at(Instant reviewDatetime) {
+
+        Card[] movedCards = new Card[this.cards.length];
+        for (int i = 0; i < this.cards.length; i++) {
+
+            Card card = new Card(this.cards[i]);
+            card.setDue(reviewDatetime.plus(Duration.between(this.reviewDatetime, card.getDue())));
+            card.setLastReview(reviewDatetime);
+            movedCards[i] = card;
+        }
+
+        return new ReviewPreview(reviewDatetime, movedCards);
+    }
+}
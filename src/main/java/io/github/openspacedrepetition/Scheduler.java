@@ -2,16 +2,17 @@
 package io.github.openspacedrepetition;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Random;
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
@@ -20,8 +21,41 @@ import lombok.ToString;
 import lombok.experimental.Accessors;
 
 @Getter
-@ToString
-@EqualsAndHashCode(exclude = "randomSeed")
+@ToString(
+        exclude = {
+            "listener",
+            "zoneRules",
+            "fixedOffsetMillis",
+            "dayStartOffsetMillis",
+            "parameterVector",
+            "learningStepsMillis",
+            "relearningStepsMillis",
+            "initialStabilities",
+            "initialDifficulties",
+            "shortTermStabilityFactors",
+            "deltaDifficulties",
+            "recallStabilityFactor",
+            "forgetShortTermStabilityDivisor",
+            "intervalModifier"
+        })
+@EqualsAndHashCode(
+        exclude = {
+            "randomSeed",
+            "listener",
+            "zoneRules",
+            "fixedOffsetMillis",
+            "dayStartOffsetMillis",
+            "parameterVector",
+            "learningStepsMillis",
+            "relearningStepsMillis",
+            "initialStabilities",
+            "initialDifficulties",
+            "shortTermStabilityFactors",
+            "deltaDifficulties",
+            "recallStabilityFactor",
+            "forgetShortTermStabilityDivisor",
+            "intervalModifier"
+        })
 @JsonDeserialize(builder = Scheduler.Builder.class)
 public class Scheduler {
 
@@ -38,9 +72,18 @@ public class Scheduler {
     private static final int DEFAULT_MAXIMUM_INTERVAL = 36500;
     private static final boolean DEFAULT_ENABLE_FUZZING = true;
     private static final int DEFAULT_RANDOM_SEED_NUMBER = 42;
+    private static final boolean DEFAULT_DETERMINISTIC_FUZZING = false;
+    private static final Duration DEFAULT_DAY_START_OFFSET = Duration.ZERO;
     public static final double STABILITY_MIN = 0.001;
     private static final double MIN_DIFFICULTY = 1.0;
     private static final double MAX_DIFFICULTY = 10.0;
+    private static final long MILLIS_PER_DAY = Duration.ofDays(1).toMillis();
+    private static final long SECONDS_PER_DAY = Duration.ofDays(1).toSeconds();
+    private static final long NO_FIXED_OFFSET = Long.MIN_VALUE;
+
+    // the CardState each thread reviews CardStateStore cards through, see reviewCard
+    private static final ThreadLocal<CardState> STORE_CARD_STATE =
+            ThreadLocal.withInitial(CardState::new);
 
     private static record FuzzRange(double start, double end, double factor) {}
 
@@ -50,33 +93,158 @@ public class Scheduler {
         new FuzzRange(20.0, Double.POSITIVE_INFINITY, 0.05),
     };
 
-    // configurable instance variables
+    /*
+    configurable instance variables
+
+    a Scheduler is immutable: the arrays are copied from the builder and only handed out as
+    copies or as a ParameterVector, so one instance can be shared by any number of threads
+    calling reviewCard concurrently. with fuzzing enabled but not deterministicFuzzing, the
+    fuzz of concurrent reviews depends on the order they draw from the shared Random
+    */
+    @Getter(AccessLevel.NONE)
     private final double[] parameters;
+
     private final double desiredRetention;
+
+    @Getter(AccessLevel.NONE)
     private final Duration[] learningSteps;
+
+    @Getter(AccessLevel.NONE)
     private final Duration[] relearningSteps;
+
     private final int maximumInterval;
     private final boolean enableFuzzing;
     private final int randomSeedNumber;
+    private final boolean deterministicFuzzing;
+    private final ZoneId timeZone;
+    private final Duration dayStartOffset;
+    @JsonIgnore private final SchedulerListener listener;
 
     // derived instance variables
+    @JsonIgnore private final ParameterVector parameterVector;
     private final double DECAY;
     private final double FACTOR;
     @JsonIgnore private final Random randomSeed;
 
+    /*
+    with a timeZone, elapsed days are counted between local days that start dayStartOffset
+    after midnight. for fixed-offset zones the offset is kept here, so the local day of a
+    review time is a single integer division
+    */
+    @Getter(AccessLevel.NONE)
+    private final ZoneRules zoneRules;
+
+    @Getter(AccessLevel.NONE)
+    private final long fixedOffsetMillis;
+
+    @Getter(AccessLevel.NONE)
+    private final long dayStartOffsetMillis;
+
+    @Getter(AccessLevel.NONE)
+    private final long[] learningStepsMillis;
+
+    @Getter(AccessLevel.NONE)
+    private final long[] relearningStepsMillis;
+
+    /*
+    terms of the FSRS formulas that only depend on the configuration, computed once here
+    instead of on every review. each is evaluated with exactly the same expression as before,
+    so reviews stay bit-identical
+    */
+    @Getter(AccessLevel.NONE)
+    private final double[] initialStabilities;
+
+    @Getter(AccessLevel.NONE)
+    private final double[] initialDifficulties;
+
+    @Getter(AccessLevel.NONE)
+    private final double[] shortTermStabilityFactors;
+
+    @Getter(AccessLevel.NONE)
+    private final double[] deltaDifficulties;
+
+    @Getter(AccessLevel.NONE)
+    private final double recallStabilityFactor;
+
+    @Getter(AccessLevel.NONE)
+    private final double forgetShortTermStabilityDivisor;
+
+    @Getter(AccessLevel.NONE)
+    private final double intervalModifier;
+
     private Scheduler(@NonNull Builder builder) {
 
-        this.parameters = builder.parameters;
+        this.parameters = builder.parameters.clone();
         this.desiredRetention = builder.desiredRetention;
-        this.learningSteps = builder.learningSteps;
-        this.relearningSteps = builder.relearningSteps;
+        this.learningSteps = builder.learningSteps.clone();
+        this.relearningSteps = builder.relearningSteps.clone();
         this.maximumInterval = builder.maximumInterval;
         this.enableFuzzing = builder.enableFuzzing;
         this.randomSeedNumber = builder.randomSeedNumber;
+        this.deterministicFuzzing = builder.deterministicFuzzing;
+        this.timeZone = builder.timeZone;
+        this.dayStartOffset = builder.dayStartOffset;
+        this.listener = builder.listener;
+
+        if (this.dayStartOffset == null
+                || this.dayStartOffset.isNegative()
+                || this.dayStartOffset.compareTo(Duration.ofDays(1)) >= 0) {
+            throw new IllegalArgumentException("dayStartOffset must be between 0 and 24 hours");
+        }
 
+        this.zoneRules = this.timeZone == null ? null : this.timeZone.getRules();
+        this.fixedOffsetMillis =
+                this.zoneRules != null && this.zoneRules.isFixedOffset()
+                        ? this.zoneRules.getOffset(Instant.EPOCH).getTotalSeconds() * 1000L
+                        : NO_FIXED_OFFSET;
+        this.dayStartOffsetMillis = this.dayStartOffset.toMillis();
+
+        this.parameterVector = new ParameterVector(this.parameters);
         this.DECAY = -this.parameters[20];
         this.FACTOR = Math.pow(0.9, 1.0 / this.DECAY) - 1;
         this.randomSeed = new Random(this.randomSeedNumber);
+        this.learningStepsMillis = toMillis(this.learningSteps);
+        this.relearningStepsMillis = toMillis(this.relearningSteps);
+
+        Rating[] ratings = Rating.values();
+        this.initialStabilities = new double[ratings.length];
+        this.initialDifficulties = new double[ratings.length];
+        this.shortTermStabilityFactors = new double[ratings.length];
+        this.deltaDifficulties = new double[ratings.length];
+        for (Rating rating : ratings) {
+            this.initialStabilities[rating.ordinal()] =
+                    clampStability(this.parameters[rating.getValue() - 1]);
+            this.initialDifficulties[rating.ordinal()] = computeInitialDifficulty(rating);
+            this.shortTermStabilityFactors[rating.ordinal()] =
+                    Math.exp(this.parameters[17] * (rating.getValue() - 3 + this.parameters[18]));
+            this.deltaDifficulties[rating.ordinal()] =
+                    -(this.parameters[6] * (rating.getValue() - 3));
+        }
+        this.recallStabilityFactor = Math.exp(this.parameters[8]);
+        this.forgetShortTermStabilityDivisor = Math.exp(this.parameters[17] * this.parameters[18]);
+        this.intervalModifier = Math.pow(this.desiredRetention, (1 / this.DECAY)) - 1;
+    }
+
+    private static long[] toMillis(@NonNull Duration[] steps) {
+
+        long[] stepsMillis = new long[steps.length];
+        for (int i = 0; i < steps.length; i++) {
+            stepsMillis[i] = steps[i].toMillis();
+        }
+
+        return stepsMillis;
+    }
+
+    public double[] getParameters() {
+        return this.parameters.clone();
+    }
+
+    public Duration[] getLearningSteps() {
+        return this.learningSteps.clone();
+    }
+
+    public Duration[] getRelearningSteps() {
+        return this.relearningSteps.clone();
     }
 
     @JsonIgnore
@@ -105,10 +273,53 @@ public class Scheduler {
         private int maximumInterval = DEFAULT_MAXIMUM_INTERVAL;
         private boolean enableFuzzing = DEFAULT_ENABLE_FUZZING;
         private int randomSeedNumber = DEFAULT_RANDOM_SEED_NUMBER;
+        private boolean deterministicFuzzing = DEFAULT_DETERMINISTIC_FUZZING;
+        private ZoneId timeZone = null;
+        private Duration dayStartOffset = DEFAULT_DAY_START_OFFSET;
+        private SchedulerListener listener = null;
+
+        public Builder() {}
+
+        // the configuration of an existing scheduler
+        Builder(Scheduler scheduler) {
+
+            this.parameters = scheduler.parameters;
+            this.desiredRetention = scheduler.desiredRetention;
+            this.learningSteps = scheduler.learningSteps;
+            this.relearningSteps = scheduler.relearningSteps;
+            this.maximumInterval = scheduler.maximumInterval;
+            this.enableFuzzing = scheduler.enableFuzzing;
+            this.randomSeedNumber = scheduler.randomSeedNumber;
+            this.deterministicFuzzing = scheduler.deterministicFuzzing;
+            this.timeZone = scheduler.timeZone;
+            this.dayStartOffset = scheduler.dayStartOffset;
+            this.listener = scheduler.listener;
+        }
 
         public Scheduler build() {
             return new Scheduler(this);
         }
+
+        SchedulerRegistry.Key registryKey() {
+
+            return new SchedulerRegistry.Key(
+                    this.parameters,
+                    this.desiredRetention,
+                    this.learningSteps,
+                    this.relearningSteps,
+                    this.maximumInterval,
+                    this.enableFuzzing,
+                    this.randomSeedNumber,
+                    this.deterministicFuzzing,
+                    this.timeZone,
+                    this.dayStartOffset,
+                    this.listener);
+        }
+    }
+
+    SchedulerRegistry.Key registryKey() {
+
+        return new Builder(this).registryKey();
     }
 
     public Scheduler(@NonNull Scheduler otherScheduler) {
@@ -120,33 +331,36 @@ public class Scheduler {
         this.maximumInterval = otherScheduler.maximumInterval;
         this.enableFuzzing = otherScheduler.enableFuzzing;
         this.randomSeedNumber = otherScheduler.randomSeedNumber;
+        this.deterministicFuzzing = otherScheduler.deterministicFuzzing;
+        this.timeZone = otherScheduler.timeZone;
+        this.dayStartOffset = otherScheduler.dayStartOffset;
+        this.listener = otherScheduler.listener;
+        this.zoneRules = otherScheduler.zoneRules;
+        this.fixedOffsetMillis = otherScheduler.fixedOffsetMillis;
+        this.dayStartOffsetMillis = otherScheduler.dayStartOffsetMillis;
+        this.parameterVector = otherScheduler.parameterVector;
         this.DECAY = otherScheduler.DECAY;
         this.FACTOR = otherScheduler.FACTOR;
         this.randomSeed = otherScheduler.randomSeed;
+        this.learningStepsMillis = otherScheduler.learningStepsMillis;
+        this.relearningStepsMillis = otherScheduler.relearningStepsMillis;
+        this.initialStabilities = otherScheduler.initialStabilities;
+        this.initialDifficulties = otherScheduler.initialDifficulties;
+        this.shortTermStabilityFactors = otherScheduler.shortTermStabilityFactors;
+        this.deltaDifficulties = otherScheduler.deltaDifficulties;
+        this.recallStabilityFactor = otherScheduler.recallStabilityFactor;
+        this.forgetShortTermStabilityDivisor = otherScheduler.forgetShortTermStabilityDivisor;
+        this.intervalModifier = otherScheduler.intervalModifier;
     }
 
     public String toJson() {
 
-        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
-        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-
-        try {
-            return mapper.writeValueAsString(this);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException(e);
-        }
+        return Json.write(Json.SCHEDULER_WRITER, this);
     }
 
     public static Scheduler fromJson(@NonNull String json) {
 
-        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
-        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-
-        try {
-            return mapper.readValue(json, Scheduler.class);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException(e);
-        }
+        return Json.read(Json.SCHEDULER_READER, json);
     }
 
     public double getCardRetrievability(@NonNull Card card, @NonNull Instant currentDatetime) {
@@ -155,8 +369,7 @@ public class Scheduler {
             return 0;
         }
 
-        int elapsedDays =
-                (int) Math.max(0, ChronoUnit.DAYS.between(card.getLastReview(), currentDatetime));
+        int elapsedDays = Math.max(0, daysBetween(card.getLastReview(), currentDatetime));
 
         return Math.pow(1 + this.FACTOR * elapsedDays / card.getStability(), this.DECAY);
     }
@@ -166,6 +379,129 @@ public class Scheduler {
         return getCardRetrievability(card, Instant.now());
     }
 
+    public double getCardRetrievability(@NonNull CardState card, long currentEpochMillis) {
+
+        if (!card.hasLastReview()) {
+            return 0;
+        }
+
+        return getCardRetrievability(
+                card, daysBetween(card.getLastReviewEpochMillis(), currentEpochMillis));
+    }
+
+    /*
+    computes the retrievability of many cards at once into retrievabilities, with the same
+    result as getCardRetrievability for each card
+
+    cards that have never been reviewed are marked with CardState.NO_LAST_REVIEW
+    */
+    public void getCardRetrievabilities(
+            @NonNull double[] stabilities,
+            @NonNull long[] lastReviewEpochMillis,
+            long currentEpochMillis,
+            @NonNull double[] retrievabilities) {
+
+        checkBatchLength(stabilities.length, lastReviewEpochMillis.length, "lastReviewEpochMillis");
+        checkBatchLength(stabilities.length, retrievabilities.length, "retrievabilities");
+
+        double factor = this.FACTOR;
+        double decay = this.DECAY;
+
+        for (int i = 0; i < stabilities.length; i++) {
+
+            long lastReview = lastReviewEpochMillis[i];
+            if (lastReview == CardState.NO_LAST_REVIEW) {
+                retrievabilities[i] = 0;
+                continue;
+            }
+
+            int elapsedDays = Math.max(0, daysBetween(lastReview, currentEpochMillis));
+
+            retrievabilities[i] = Math.pow(1 + factor * elapsedDays / stabilities[i], decay);
+        }
+    }
+
+    public void getCardRetrievabilities(
+            @NonNull CardStateStore cards,
+            long currentEpochMillis,
+            @NonNull double[] retrievabilities) {
+
+        checkBatchLength(cards.size(), retrievabilities.length, "retrievabilities");
+
+        double factor = this.FACTOR;
+        double decay = this.DECAY;
+
+        for (int i = 0; i < retrievabilities.length; i++) {
+
+            long lastReview = cards.getLastReviewEpochMillis(i);
+            if (lastReview == CardState.NO_LAST_REVIEW) {
+                retrievabilities[i] = 0;
+                continue;
+            }
+
+            int elapsedDays = Math.max(0, daysBetween(lastReview, currentEpochMillis));
+
+            retrievabilities[i] = Math.pow(1 + factor * elapsedDays / cards.getStability(i), decay);
+        }
+    }
+
+    /*
+    the number of days between two review times: whole 24 hour periods without a timeZone,
+    or else the number of local day starts passed
+    */
+    int daysBetween(Instant from, Instant to) {
+
+        if (this.zoneRules == null) {
+
+            // the same as ChronoUnit.DAYS.between, without its overhead
+            long seconds = to.getEpochSecond() - from.getEpochSecond();
+            int nanos = to.getNano() - from.getNano();
+            if (seconds > 0 && nanos < 0) {
+                seconds--;
+            } else if (seconds < 0 && nanos > 0) {
+                seconds++;
+            }
+
+            return (int) (seconds / SECONDS_PER_DAY);
+        }
+
+        return (int) (localEpochDay(to.toEpochMilli()) - localEpochDay(from.toEpochMilli()));
+    }
+
+    private int daysBetween(long fromEpochMillis, long toEpochMillis) {
+
+        if (this.zoneRules == null) {
+            return (int) ((toEpochMillis - fromEpochMillis) / MILLIS_PER_DAY);
+        }
+
+        return (int) (localEpochDay(toEpochMillis) - localEpochDay(fromEpochMillis));
+    }
+
+    /*
+    the day of a due date: its local day with a timeZone, or else its UTC day
+    */
+    long dueDay(long epochMillis) {
+
+        if (this.zoneRules == null) {
+            return Math.floorDiv(epochMillis, MILLIS_PER_DAY);
+        }
+
+        return localEpochDay(epochMillis);
+    }
+
+    private long localEpochDay(long epochMillis) {
+
+        long offsetMillis = this.fixedOffsetMillis;
+        if (offsetMillis == NO_FIXED_OFFSET) {
+            offsetMillis =
+                    this.zoneRules.getOffset(Instant.ofEpochMilli(epochMillis)).getTotalSeconds()
+                            * 1000L;
+        }
+
+        return Math.floorDiv(
+                epochMillis + offsetMillis - this.dayStartOffsetMillis, MILLIS_PER_DAY);
+    }
+
     private double clampStability(double stability) {
 
         return Math.max(stability, STABILITY_MIN);
@@ -173,11 +509,7 @@ public class Scheduler {
 
     private double initialStability(@NonNull Rating rating) {
 
-        double initialStability = this.parameters[rating.getValue() - 1];
-
-        initialStability = clampStability(initialStability);
-
-        return initialStability;
+        return this.initialStabilities[rating.ordinal()];
     }
 
     private double clampDifficulty(double difficulty) {
@@ -187,6 +519,11 @@ public class Scheduler {
 
     private double initialDifficulty(@NonNull Rating rating) {
 
+        return this.initialDifficulties[rating.ordinal()];
+    }
+
+    private double computeInitialDifficulty(@NonNull Rating rating) {
+
         double initialDifficulty =
                 this.parameters[4]
                         - Math.pow(Math.E, (this.parameters[5] * (rating.getValue() - 1)))
@@ -200,7 +537,7 @@ public class Scheduler {
     private double shortTermStability(double stability, @NonNull Rating rating) {
 
         double shortTermStabilityIncrease =
-                Math.exp(this.parameters[17] * (rating.getValue() - 3 + this.parameters[18]))
+                this.shortTermStabilityFactors[rating.ordinal()]
                         * Math.pow(stability, -this.parameters[19]);
 
         if (rating == Rating.GOOD || rating == Rating.EASY) {
@@ -229,7 +566,7 @@ public class Scheduler {
 
         double arg1 = initialDifficulty(Rating.EASY);
 
-        double deltaDifficulty = -(this.parameters[6] * (rating.getValue() - 3));
+        double deltaDifficulty = this.deltaDifficulties[rating.ordinal()];
 
         double arg2 = difficulty + linearDamping(deltaDifficulty, difficulty);
 
@@ -249,7 +586,7 @@ public class Scheduler {
                         * Math.exp((1 - retrievability) * this.parameters[14]);
 
         double nextForgetStabilityShortTermParams =
-                stability / Math.exp(this.parameters[17] * this.parameters[18]);
+                stability / this.forgetShortTermStabilityDivisor;
 
         return Math.min(nextForgetStabilityLongTermParams, nextForgetStabilityShortTermParams);
     }
@@ -263,7 +600,7 @@ public class Scheduler {
 
         return stability
                 * (1
-                        + Math.exp(this.parameters[8])
+                        + this.recallStabilityFactor
                                 * (11 - difficulty)
                                 * Math.pow(stability, -this.parameters[9])
                                 * (Math.exp((1 - retrievability) * this.parameters[10]) - 1)
@@ -292,11 +629,7 @@ public class Scheduler {
 
     private int nextInterval(double stability) {
 
-        int nextInterval =
-                (int)
-                        Math.round(
-                                (stability / this.FACTOR)
-                                        * (Math.pow(this.desiredRetention, (1 / this.DECAY)) - 1));
+        int nextInterval = (int) Math.round((stability / this.FACTOR) * this.intervalModifier);
 
         // must be at least 1 day long
         nextInterval = Math.max(nextInterval, 1);
@@ -307,7 +640,7 @@ public class Scheduler {
         return nextInterval;
     }
 
-    private int[] getFuzzRange(int intervalDays) {
+    private double getFuzzDelta(int intervalDays) {
 
         double delta = 1.0;
         for (FuzzRange fuzzRange : FUZZ_RANGES) {
@@ -319,71 +652,266 @@ public class Scheduler {
                                     0.0);
         }
 
-        int minIvl = (int) Math.round(intervalDays - delta);
-        int maxIvl = (int) Math.round(intervalDays + delta);
+        return delta;
+    }
+
+    /*
+    a uniform double in [0, 1) for fuzzing a review
+
+    by default this draws from the scheduler's shared Random. with deterministicFuzzing it is
+    instead a SplitMix64 hash of (randomSeedNumber, cardId, reviewEpochMillis), so there is no
+    shared state between threads and a review always gets the same fuzz no matter which thread
+    or in what order it is scheduled
+    */
+    private double nextFuzzDouble(int cardId, long reviewEpochMillis) {
+
+        if (!this.deterministicFuzzing) {
+            return this.randomSeed.nextDouble();
+        }
+
+        long hash = mix64(this.randomSeedNumber);
+        hash = mix64(hash ^ cardId);
+        hash = mix64(hash ^ reviewEpochMillis);
+
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+
+    /*
+    whether a review always gives the same result, which is not the case when fuzzing draws
+    from the shared Random
+    */
+    boolean hasReproducibleFuzz() {
+        return !this.enableFuzzing || this.deterministicFuzzing;
+    }
+
+    /*
+    whether preview fuzzes the previewed intervals, which then depend on the exact
+    reviewDatetime and not just on the days since the card's last review
+    */
+    boolean fuzzesPreview() {
+        return this.enableFuzzing && this.deterministicFuzzing;
+    }
+
+    private static long mix64(long value) {
+
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+
+        return z ^ (z >>> 31);
+    }
+
+    private int getMinFuzzedIntervalDays(int intervalDays) {
+
+        int minIvl = (int) Math.round(intervalDays - getFuzzDelta(intervalDays));
 
         // make sure the minIvl and maxIvl fall into a valid range
         minIvl = Math.max(2, minIvl);
-        maxIvl = Math.min(maxIvl, this.maximumInterval);
-        minIvl = Math.min(minIvl, maxIvl);
 
-        return new int[] {minIvl, maxIvl};
+        return Math.min(minIvl, getMaxFuzzedIntervalDays(intervalDays));
+    }
+
+    private int getMaxFuzzedIntervalDays(int intervalDays) {
+
+        int maxIvl = (int) Math.round(intervalDays + getFuzzDelta(intervalDays));
+
+        return Math.min(maxIvl, this.maximumInterval);
     }
 
-    private Duration getFuzzedInterval(@NonNull Duration interval) {
+    private int getFuzzedIntervalDays(int intervalDays, int cardId, long reviewEpochMillis) {
+
+        return Math.min(
+                getUnclampedFuzzedIntervalDays(intervalDays, cardId, reviewEpochMillis),
+                this.maximumInterval);
+    }
 
-        int intervalDays = (int) interval.toDays();
+    /*
+    the fuzzed interval before it is capped at maximumInterval, which rounding can exceed by a day
+    */
+    private int getUnclampedFuzzedIntervalDays(
+            int intervalDays, int cardId, long reviewEpochMillis) {
 
         if (intervalDays < 2.5) {
-            return interval;
+            return intervalDays;
         }
 
-        int[] ivlBounds = getFuzzRange(intervalDays);
-
-        int minIvl = ivlBounds[0];
-        int maxIvl = ivlBounds[1];
+        int minIvl = getMinFuzzedIntervalDays(intervalDays);
+        int maxIvl = getMaxFuzzedIntervalDays(intervalDays);
 
         double fuzzedIntervalDaysDouble =
-                (randomSeed.nextDouble() * (maxIvl - minIvl + 1)) + minIvl;
+                (nextFuzzDouble(cardId, reviewEpochMillis) * (maxIvl - minIvl + 1)) + minIvl;
 
-        int fuzzedIntervalDays =
-                Math.min((int) Math.round(fuzzedIntervalDaysDouble), this.maximumInterval);
-
-        return Duration.ofDays(fuzzedIntervalDays);
+        return (int) Math.round(fuzzedIntervalDaysDouble);
     }
 
-    public CardAndReviewLog reviewCard(
-            Card card, Rating rating, Instant reviewDatetime, Integer reviewDuration) {
+    /*
+    the interval within the fuzz window whose due day has the fewest cards in dueHistogram.
+    among equally loaded days the one closest to the fuzzed interval is chosen, so with an even
+    load this is the same as fuzzing
+    */
+    private int getBalancedIntervalDays(
+            int intervalDays, int cardId, long reviewEpochMillis, DueHistogram dueHistogram) {
 
-        card = new Card(card);
+        if (intervalDays < 2.5) {
+            return intervalDays;
+        }
 
-        if (reviewDatetime == null) {
-            reviewDatetime = Instant.now();
+        int minIvl = getMinFuzzedIntervalDays(intervalDays);
+        int maxIvl = getMaxFuzzedIntervalDays(intervalDays);
+        int preferredIvl = getFuzzedIntervalDays(intervalDays, cardId, reviewEpochMillis);
+
+        int balancedIvl = preferredIvl;
+        int balancedCount = Integer.MAX_VALUE;
+        for (int ivl = minIvl; ivl <= maxIvl; ivl++) {
+
+            int count = dueHistogram.getCount(reviewEpochMillis + ivl * MILLIS_PER_DAY);
+            if (count < balancedCount
+                    || (count == balancedCount
+                            && Math.abs(ivl - preferredIvl)
+                                    < Math.abs(balancedIvl - preferredIvl))) {
+                balancedIvl = ivl;
+                balancedCount = count;
+            }
         }
 
-        Integer daysSinceLastReview;
+        return balancedIvl;
+    }
 
-        Duration nextInterval = Duration.ofMillis(0); // this is just a temporary initialization
+    private double getCardRetrievability(@NonNull CardState card, int daysSinceLastReview) {
 
-        if (card.getLastReview() == null) {
-            daysSinceLastReview = null;
-        } else {
-            daysSinceLastReview =
-                    (int) ChronoUnit.DAYS.between(card.getLastReview(), reviewDatetime);
+        if (!card.hasLastReview()) {
+            return 0;
         }
 
-        State cardState = card.getState();
-        switch (cardState) {
-            case LEARNING -> {
-                if (card.getStability() == null && card.getDifficulty() == null) {
+        int elapsedDays = Math.max(0, daysSinceLastReview);
 
-                    double initialStability = initialStability(rating);
-                    double initialDifficulty = initialDifficulty(rating);
+        return Math.pow(1 + this.FACTOR * elapsedDays / card.getStability(), this.DECAY);
+    }
 
-                    card.setStability(initialStability);
-                    card.setDifficulty(initialDifficulty);
+    private double getCardRetrievability(
+            @NonNull CardState card, int daysSinceLastReview, double knownRetrievability) {
 
-                } else if (daysSinceLastReview != null && daysSinceLastReview < 1) {
+        return Double.isNaN(knownRetrievability)
+                ? getCardRetrievability(card, daysSinceLastReview)
+                : knownRetrievability;
+    }
+
+    /*
+    updates the card's state, step, stability and difficulty in place and returns the
+    length of its next interval in milliseconds
+
+    both the Card and CardState review paths go through this method so that they stay
+    bit-identical to each other. it also reports the review to the listener, if there is one
+    */
+    private long reviewCardState(
+            @NonNull CardState card,
+            @NonNull Rating rating,
+            long reviewEpochMillis,
+            int daysSinceLastReview) {
+
+        return reviewCardState(card, rating, reviewEpochMillis, daysSinceLastReview, null);
+    }
+
+    private long reviewCardState(
+            @NonNull CardState card,
+            @NonNull Rating rating,
+            long reviewEpochMillis,
+            int daysSinceLastReview,
+            DueHistogram dueHistogram) {
+
+        SchedulerListener listener = this.listener;
+        if (listener == null) {
+            return reviewCardState(
+                    card,
+                    rating,
+                    reviewEpochMillis,
+                    daysSinceLastReview,
+                    Double.NaN,
+                    this.enableFuzzing,
+                    dueHistogram);
+        }
+
+        State previousState = card.getState();
+        boolean sameDayReview =
+                card.hasMemoryState() && card.hasLastReview() && daysSinceLastReview < 1;
+
+        // the interval is fuzzed here rather than by reviewCardState, to see whether capping
+        // the interval or its fuzz at maximumInterval changed it
+        long start = System.nanoTime();
+        long nextIntervalMillis =
+                reviewCardState(
+                        card,
+                        rating,
+                        reviewEpochMillis,
+                        daysSinceLastReview,
+                        Double.NaN,
+                        false,
+                        null);
+
+        boolean maximumIntervalReached = false;
+        if (card.getState() == State.REVIEW) {
+
+            maximumIntervalReached =
+                    Math.round((card.getStability() / this.FACTOR) * this.intervalModifier)
+                            > this.maximumInterval;
+
+            if (this.enableFuzzing) {
+
+                int nextIntervalDays = (int) (nextIntervalMillis / MILLIS_PER_DAY);
+                int intervalDays =
+                        dueHistogram == null
+                                ? getUnclampedFuzzedIntervalDays(
+                                        nextIntervalDays, card.getCardId(), reviewEpochMillis)
+                                : getBalancedIntervalDays(
+                                        nextIntervalDays,
+                                        card.getCardId(),
+                                        reviewEpochMillis,
+                                        dueHistogram);
+
+                maximumIntervalReached |= intervalDays > this.maximumInterval;
+                nextIntervalMillis = Math.min(intervalDays, this.maximumInterval) * MILLIS_PER_DAY;
+            }
+        }
+        long durationNanos = System.nanoTime() - start;
+
+        listener.onReview(
+                previousState,
+                rating,
+                card.getState(),
+                sameDayReview,
+                maximumIntervalReached,
+                nextIntervalMillis,
+                durationNanos);
+
+        return nextIntervalMillis;
+    }
+
+    /*
+    retrievability may be passed in when already known (as when previewing all four ratings of
+    a card), or NaN to compute it only if the review needs it. with a dueHistogram the interval
+    of a fuzzed review card is load balanced
+    */
+    private long reviewCardState(
+            @NonNull CardState card,
+            @NonNull Rating rating,
+            long reviewEpochMillis,
+            int daysSinceLastReview,
+            double knownRetrievability,
+            boolean fuzz,
+            DueHistogram dueHistogram) {
+
+        boolean sameDayReview = card.hasLastReview() && daysSinceLastReview < 1;
+
+        long nextIntervalMillis = 0;
+
+        switch (card.getState()) {
+            case LEARNING -> {
+                if (!card.hasMemoryState()) {
+
+                    card.setStability(initialStability(rating));
+                    card.setDifficulty(initialDifficulty(rating));
+
+                } else if (sameDayReview) {
 
                     double shortTermStability = shortTermStability(card.getStability(), rating);
                     double nextDifficulty = nextDifficulty(card.getDifficulty(), rating);
@@ -393,7 +921,8 @@ public class Scheduler {
 
                 } else {
 
-                    double retrievability = getCardRetrievability(card, reviewDatetime);
+                    double retrievability =
+                            getCardRetrievability(card, daysSinceLastReview, knownRetrievability);
 
                     double nextStability =
                             nextStability(
@@ -412,74 +941,67 @@ public class Scheduler {
                 first if-clause handles edge case where the Card in the Learning state was previously
                 scheduled with a Scheduler with more learning_steps than the current Scheduler
                 */
-                int nextIntervalDays;
-                if (this.learningSteps.length == 0
-                        || (card.getStep() >= this.learningSteps.length
+                if (this.learningStepsMillis.length == 0
+                        || (card.getStep() >= this.learningStepsMillis.length
                                 && (rating == Rating.HARD
                                         || rating == Rating.GOOD
                                         || rating == Rating.EASY))) {
 
                     card.setState(State.REVIEW);
-                    card.setStep(null);
+                    card.setStep(CardState.NO_STEP);
 
-                    nextIntervalDays = nextInterval(card.getStability());
-                    nextInterval = Duration.ofDays((long) nextIntervalDays);
+                    nextIntervalMillis = nextInterval(card.getStability()) * MILLIS_PER_DAY;
 
                 } else {
 
                     switch (rating) {
                         case AGAIN -> {
                             card.setStep(0);
-                            nextInterval = this.learningSteps[card.getStep()];
+                            nextIntervalMillis = this.learningStepsMillis[card.getStep()];
                         }
                         case HARD -> {
 
                             // card step stays the same
 
-                            if (card.getStep() == 0 && this.learningSteps.length == 1) {
+                            if (card.getStep() == 0 && this.learningStepsMillis.length == 1) {
 
-                                nextInterval =
-                                        Duration.ofMillis(
-                                                Math.round(this.learningSteps[0].toMillis() * 1.5));
+                                nextIntervalMillis = Math.round(this.learningStepsMillis[0] * 1.5);
 
                             } else if (card.getStep() == 0) {
 
-                                nextInterval =
-                                        Duration.ofMillis(
-                                                Math.round(
-                                                        (this.learningSteps[0].toMillis()
-                                                                        + this.learningSteps[1]
-                                                                                .toMillis())
-                                                                / 2.0));
+                                nextIntervalMillis =
+                                        Math.round(
+                                                (this.learningStepsMillis[0]
+                                                                + this.learningStepsMillis[1])
+                                                        / 2.0);
 
                             } else {
 
-                                nextInterval = this.learningSteps[card.getStep()];
+                                nextIntervalMillis = this.learningStepsMillis[card.getStep()];
                             }
                         }
                         case GOOD -> {
-                            if (card.getStep() + 1 == this.learningSteps.length) {
+                            if (card.getStep() + 1 == this.learningStepsMillis.length) {
 
                                 // the last step
 
                                 card.setState(State.REVIEW);
-                                card.setStep(null);
+                                card.setStep(CardState.NO_STEP);
 
-                                nextIntervalDays = nextInterval(card.getStability());
-                                nextInterval = Duration.ofDays((long) nextIntervalDays);
+                                nextIntervalMillis =
+                                        nextInterval(card.getStability()) * MILLIS_PER_DAY;
 
                             } else {
 
                                 card.setStep(card.getStep() + 1);
-                                nextInterval = this.learningSteps[card.getStep()];
+                                nextIntervalMillis = this.learningStepsMillis[card.getStep()];
                             }
                         }
                         case EASY -> {
                             card.setState(State.REVIEW);
-                            card.setStep(null);
+                            card.setStep(CardState.NO_STEP);
 
-                            nextIntervalDays = nextInterval(card.getStability());
-                            nextInterval = Duration.ofDays((long) nextIntervalDays);
+                            nextIntervalMillis = nextInterval(card.getStability()) * MILLIS_PER_DAY;
                         }
                     }
                 }
@@ -487,7 +1009,7 @@ public class Scheduler {
             case REVIEW -> {
 
                 // update the card's stability and difficulty
-                if (daysSinceLastReview != null && daysSinceLastReview < 1) {
+                if (sameDayReview) {
 
                     double shortTermStability = shortTermStability(card.getStability(), rating);
 
@@ -499,7 +1021,8 @@ public class Scheduler {
                             nextStability(
                                     card.getDifficulty(),
                                     card.getStability(),
-                                    getCardRetrievability(card, reviewDatetime),
+                                    getCardRetrievability(
+                                            card, daysSinceLastReview, knownRetrievability),
                                     rating);
 
                     card.setStability(nextStability);
@@ -508,32 +1031,29 @@ public class Scheduler {
                 double nextDifficulty = nextDifficulty(card.getDifficulty(), rating);
                 card.setDifficulty(nextDifficulty);
 
-                int nextIntervalDays;
                 switch (rating) {
                     case AGAIN -> {
-                        if (this.relearningSteps.length == 0) {
+                        if (this.relearningStepsMillis.length == 0) {
 
-                            nextIntervalDays = nextInterval(card.getStability());
-                            nextInterval = Duration.ofDays(nextIntervalDays);
+                            nextIntervalMillis = nextInterval(card.getStability()) * MILLIS_PER_DAY;
 
                         } else {
 
                             card.setState(State.RELEARNING);
                             card.setStep(0);
 
-                            nextInterval = this.relearningSteps[card.getStep()];
+                            nextIntervalMillis = this.relearningStepsMillis[card.getStep()];
                         }
                     }
                     case HARD, GOOD, EASY -> {
-                        nextIntervalDays = nextInterval(card.getStability());
-                        nextInterval = Duration.ofDays(nextIntervalDays);
+                        nextIntervalMillis = nextInterval(card.getStability()) * MILLIS_PER_DAY;
                     }
                 }
             }
             case RELEARNING -> {
 
                 // update the card's stability and difficulty
-                if (daysSinceLastReview != null && daysSinceLastReview < 1) {
+                if (sameDayReview) {
 
                     double shortTermStability = shortTermStability(card.getStability(), rating);
 
@@ -544,7 +1064,8 @@ public class Scheduler {
                             nextStability(
                                     card.getDifficulty(),
                                     card.getStability(),
-                                    getCardRetrievability(card, reviewDatetime),
+                                    getCardRetrievability(
+                                            card, daysSinceLastReview, knownRetrievability),
                                     rating);
 
                     card.setStability(nextStability);
@@ -558,85 +1079,134 @@ public class Scheduler {
                 first if-clause handles edge case where the Card in the Relearning state was previously
                 scheduled with a Scheduler with more relearning_steps than the current Scheduler
                 */
-                int nextIntervalDays;
-                if (this.relearningSteps.length == 0
-                        || (card.getStep() >= this.relearningSteps.length
+                if (this.relearningStepsMillis.length == 0
+                        || (card.getStep() >= this.relearningStepsMillis.length
                                 && (rating == Rating.HARD
                                         || rating == Rating.GOOD
                                         || rating == Rating.EASY))) {
 
                     card.setState(State.REVIEW);
-                    card.setStep(null);
+                    card.setStep(CardState.NO_STEP);
 
-                    nextIntervalDays = nextInterval(card.getStability());
-                    nextInterval = Duration.ofDays(nextIntervalDays);
+                    nextIntervalMillis = nextInterval(card.getStability()) * MILLIS_PER_DAY;
 
                 } else {
 
                     switch (rating) {
                         case AGAIN -> {
                             card.setStep(0);
-                            nextInterval = this.relearningSteps[card.getStep()];
+                            nextIntervalMillis = this.relearningStepsMillis[card.getStep()];
                         }
                         case HARD -> {
                             // card step stays the same
 
-                            if (card.getStep() == 0 && this.relearningSteps.length == 1) {
+                            if (card.getStep() == 0 && this.relearningStepsMillis.length == 1) {
 
-                                nextInterval =
-                                        Duration.ofMillis(
-                                                Math.round(
-                                                        this.relearningSteps[0].toMillis() * 1.5));
+                                nextIntervalMillis =
+                                        Math.round(this.relearningStepsMillis[0] * 1.5);
 
                             } else if (card.getStep() == 0) {
 
-                                nextInterval =
-                                        Duration.ofMillis(
-                                                Math.round(
-                                                        (this.learningSteps[0].toMillis()
-                                                                        + this.learningSteps[1]
-                                                                                .toMillis())
-                                                                / 2.0));
+                                nextIntervalMillis =
+                                        Math.round(
+                                                (this.learningStepsMillis[0]
+                                                                + this.learningStepsMillis[1])
+                                                        / 2.0);
 
                             } else {
 
-                                nextInterval = this.relearningSteps[card.getStep()];
+                                nextIntervalMillis = this.relearningStepsMillis[card.getStep()];
                             }
                         }
                         case GOOD -> {
-                            if (card.getStep() + 1 == this.relearningSteps.length) {
+                            if (card.getStep() + 1 == this.relearningStepsMillis.length) {
 
                                 card.setState(State.REVIEW);
-                                card.setStep(null);
+                                card.setStep(CardState.NO_STEP);
 
-                                nextIntervalDays = nextInterval(card.getStability());
-                                nextInterval = Duration.ofDays(nextIntervalDays);
+                                nextIntervalMillis =
+                                        nextInterval(card.getStability()) * MILLIS_PER_DAY;
 
                             } else {
 
                                 card.setStep(card.getStep() + 1);
-                                nextInterval = this.relearningSteps[card.getStep()];
+                                nextIntervalMillis = this.relearningStepsMillis[card.getStep()];
                             }
                         }
                         case EASY -> {
                             card.setState(State.REVIEW);
-                            card.setStep(null);
+                            card.setStep(CardState.NO_STEP);
 
-                            nextIntervalDays = nextInterval(card.getStability());
-                            nextInterval = Duration.ofDays(nextIntervalDays);
+                            nextIntervalMillis = nextInterval(card.getStability()) * MILLIS_PER_DAY;
                         }
                     }
                 }
             }
         }
 
-        if (this.enableFuzzing && card.getState() == State.REVIEW) {
+        if (fuzz && card.getState() == State.REVIEW) {
+
+            int nextIntervalDays = (int) (nextIntervalMillis / MILLIS_PER_DAY);
+            int intervalDays =
+                    dueHistogram == null
+                            ? getFuzzedIntervalDays(
+                                    nextIntervalDays, card.getCardId(), reviewEpochMillis)
+                            : getBalancedIntervalDays(
+                                    nextIntervalDays,
+                                    card.getCardId(),
+                                    reviewEpochMillis,
+                                    dueHistogram);
+            nextIntervalMillis = intervalDays * MILLIS_PER_DAY;
+        }
+
+        return nextIntervalMillis;
+    }
+
+    public CardAndReviewLog reviewCard(
+            Card card, Rating rating, Instant reviewDatetime, Integer reviewDuration) {
+
+        return reviewCard(card, rating, reviewDatetime, reviewDuration, null);
+    }
+
+    /*
+    reviews the card with load balancing: a review card is due on the least loaded day of its
+    fuzz window in dueHistogram rather than a uniformly fuzzed one, flattening the peaks of
+    reviews on single days (e.g. after importing many cards) while keeping the interval within
+    the same bounds as fuzzing. with fuzzing disabled the intervals are not changed
 
-            nextInterval = getFuzzedInterval(nextInterval);
+    the card is then counted on its new due day in dueHistogram. without a dueHistogram this is
+    the same as reviewCard(card, rating, reviewDatetime, reviewDuration)
+    */
+    public CardAndReviewLog reviewCard(
+            Card card,
+            Rating rating,
+            Instant reviewDatetime,
+            Integer reviewDuration,
+            DueHistogram dueHistogram) {
+
+        if (reviewDatetime == null) {
+            reviewDatetime = Instant.now();
         }
 
-        card.setDue(reviewDatetime.plus(nextInterval));
-        card.setLastReview(reviewDatetime);
+        int daysSinceLastReview = 0;
+        if (card.getLastReview() != null) {
+            daysSinceLastReview = daysBetween(card.getLastReview(), reviewDatetime);
+        }
+
+        CardState cardState = new CardState(card);
+        long nextIntervalMillis =
+                reviewCardState(
+                        cardState,
+                        rating,
+                        reviewDatetime.toEpochMilli(),
+                        daysSinceLastReview,
+                        dueHistogram);
+
+        card = reviewedCard(card, cardState, reviewDatetime, nextIntervalMillis);
+
+        if (dueHistogram != null) {
+            dueHistogram.add(card);
+        }
 
         ReviewLog reviewLog =
                 new ReviewLog(card.getCardId(), rating, reviewDatetime, reviewDuration);
@@ -644,6 +1214,48 @@ public class Scheduler {
         return new CardAndReviewLog(card, reviewLog);
     }
 
+    /*
+    the card after the review in reviewLog, like reviewCard but without reporting the review to
+    the listener, for rebuilding cards from review logs that were already reported
+    */
+    Card replayReview(@NonNull Card card, @NonNull ReviewLog reviewLog) {
+
+        Instant reviewDatetime = reviewLog.reviewDatetime();
+
+        int daysSinceLastReview = 0;
+        if (card.getLastReview() != null) {
+            daysSinceLastReview = daysBetween(card.getLastReview(), reviewDatetime);
+        }
+
+        CardState cardState = new CardState(card);
+        long nextIntervalMillis =
+                reviewCardState(
+                        cardState,
+                        reviewLog.rating(),
+                        reviewDatetime.toEpochMilli(),
+                        daysSinceLastReview,
+                        Double.NaN,
+                        this.enableFuzzing,
+                        null);
+
+        return reviewedCard(card, cardState, reviewDatetime, nextIntervalMillis);
+    }
+
+    private static Card reviewedCard(
+            Card card, CardState cardState, Instant reviewDatetime, long nextIntervalMillis) {
+
+        card = new Card(card);
+
+        card.setState(cardState.getState());
+        card.setStep(cardState.hasStep() ? cardState.getStep() : null);
+        card.setStability(cardState.getStability());
+        card.setDifficulty(cardState.getDifficulty());
+        card.setDue(reviewDatetime.plusMillis(nextIntervalMillis));
+        card.setLastReview(reviewDatetime);
+
+        return card;
+    }
+
     public CardAndReviewLog reviewCard(Card card, Rating rating) {
 
         return reviewCard(card, rating, null, null);
@@ -658,4 +1270,302 @@ public class Scheduler {
 
         return reviewCard(card, rating, null, reviewDuration);
     }
+
+    /*
+    the outcomes of reviewing the card with each of the four ratings at reviewDatetime, computed
+    in one pass that shares the elapsed days and retrievability between them
+
+    the previewed cards are the ones reviewCard would return, except with fuzzing enabled but not
+    deterministicFuzzing, where the intervals are previewed without fuzz since drawing from the
+    shared random number generator would change the fuzz of later reviews
+    */
+    public ReviewPreview preview(@NonNull Card card, @NonNull Instant reviewDatetime) {
+
+        int daysSinceLastReview = 0;
+        if (card.getLastReview() != null) {
+            daysSinceLastReview = daysBetween(card.getLastReview(), reviewDatetime);
+        }
+
+        CardState cardState = new CardState(card);
+
+        double retrievability = Double.NaN;
+        if (cardState.hasMemoryState() && !(cardState.hasLastReview() && daysSinceLastReview < 1)) {
+            retrievability = getCardRetrievability(cardState, daysSinceLastReview);
+        }
+
+        boolean fuzz = fuzzesPreview();
+
+        Rating[] ratings = Rating.values();
+        Card[] cards = new Card[ratings.length];
+        for (Rating rating : ratings) {
+
+            cardState.set(card);
+            long nextIntervalMillis =
+                    reviewCardState(
+                            cardState,
+                            rating,
+                            reviewDatetime.toEpochMilli(),
+                            daysSinceLastReview,
+                            retrievability,
+                            fuzz,
+                            null);
+
+            Card previewCard = new Card(card);
+            previewCard.setState(cardState.getState());
+            previewCard.setStep(cardState.hasStep() ? cardState.getStep() : null);
+            previewCard.setStability(cardState.getStability());
+            previewCard.setDifficulty(cardState.getDifficulty());
+            previewCard.setDue(reviewDatetime.plusMillis(nextIntervalMillis));
+            previewCard.setLastReview(reviewDatetime);
+
+            cards[rating.ordinal()] = previewCard;
+        }
+
+        return new ReviewPreview(reviewDatetime, cards);
+    }
+
+    /*
+    rebuilds a card's scheduling state from its review history with this scheduler, e.g. after
+    re-fitting its parameters
+
+    the review logs are replayed in reviewDatetime order starting from a new card with the given
+    card's cardId and due, with the same result as calling reviewCard with each of them in turn.
+    the replayed reviews are not reported to the listener, and with fuzzing enabled but not
+    deterministicFuzzing each call draws new fuzz, so rescheduling twice may differ
+    */
+    public Card rescheduleCard(@NonNull Card card, @NonNull List<ReviewLog> reviewLogs) {
+
+        boolean sorted = true;
+        for (int i = 0; i < reviewLogs.size(); i++) {
+
+            ReviewLog reviewLog = reviewLogs.get(i);
+            if (reviewLog.cardId() != card.getCardId()) {
+                throw new IllegalArgumentException(
+                        "review log for card "
+                                + reviewLog.cardId()
+                                + " does not belong to card "
+                                + card.getCardId());
+            }
+            if (i > 0
+                    && reviewLog
+                            .reviewDatetime()
+                            .isBefore(reviewLogs.get(i - 1).reviewDatetime())) {
+                sorted = false;
+            }
+        }
+
+        if (!sorted) {
+            reviewLogs = new ArrayList<>(reviewLogs);
+            reviewLogs.sort(Comparator.comparing(ReviewLog::reviewDatetime));
+        }
+
+        Card rescheduledCard = Card.builder().cardId(card.getCardId()).due(card.getDue()).build();
+        if (reviewLogs.isEmpty()) {
+            return rescheduledCard;
+        }
+
+        CardState cardState = new CardState(rescheduledCard);
+        Instant lastReview = null;
+        Instant due = rescheduledCard.getDue();
+
+        for (ReviewLog reviewLog : reviewLogs) {
+
+            Instant reviewDatetime = reviewLog.reviewDatetime();
+
+            int daysSinceLastReview = 0;
+            if (lastReview != null) {
+                daysSinceLastReview = daysBetween(lastReview, reviewDatetime);
+            }
+
+            long nextIntervalMillis =
+                    reviewCardState(
+                            cardState,
+                            reviewLog.rating(),
+                            reviewDatetime.toEpochMilli(),
+                            daysSinceLastReview,
+                            Double.NaN,
+                            this.enableFuzzing,
+                            null);
+
+            cardState.setLastReviewEpochMillis(reviewDatetime.toEpochMilli());
+            lastReview = reviewDatetime;
+            due = reviewDatetime.plusMillis(nextIntervalMillis);
+        }
+
+        rescheduledCard.setState(cardState.getState());
+        rescheduledCard.setStep(cardState.hasStep() ? cardState.getStep() : null);
+        rescheduledCard.setStability(cardState.getStability());
+        rescheduledCard.setDifficulty(cardState.getDifficulty());
+        rescheduledCard.setDue(due);
+        rescheduledCard.setLastReview(lastReview);
+
+        return rescheduledCard;
+    }
+
+    /*
+    allocation-free variant of reviewCard that updates the CardState in place
+
+    produces the same results as reviewCard for review datetimes with millisecond precision
+    */
+    public void reviewCard(
+            @NonNull CardState card, @NonNull Rating rating, long reviewEpochMillis) {
+
+        int daysSinceLastReview = 0;
+        if (card.hasLastReview()) {
+            daysSinceLastReview = daysBetween(card.getLastReviewEpochMillis(), reviewEpochMillis);
+        }
+
+        long nextIntervalMillis =
+                reviewCardState(card, rating, reviewEpochMillis, daysSinceLastReview);
+
+        card.setDueEpochMillis(reviewEpochMillis + nextIntervalMillis);
+        card.setLastReviewEpochMillis(reviewEpochMillis);
+    }
+
+    public ReviewBatch reviewCards(
+            @NonNull List<Card> cards,
+            @NonNull Rating[] ratings,
+            Instant[] reviewDatetimes,
+            Integer[] reviewDurations) {
+
+        return reviewCards(cards, ratings, reviewDatetimes, reviewDurations, null);
+    }
+
+    /*
+    with non-null failures, a review that throws leaves its slot of the batch unset and its
+    exception in failures[i] instead of aborting the batch, so every card is reviewed exactly
+    once and the other reviews keep their results
+    */
+    ReviewBatch reviewCards(
+            @NonNull List<Card> cards,
+            @NonNull Rating[] ratings,
+            Instant[] reviewDatetimes,
+            Integer[] reviewDurations,
+            RuntimeException[] failures) {
+
+        checkBatchLength(cards.size(), ratings.length, "ratings");
+        if (reviewDatetimes != null) {
+            checkBatchLength(cards.size(), reviewDatetimes.length, "reviewDatetimes");
+        }
+        if (reviewDurations != null) {
+            checkBatchLength(cards.size(), reviewDurations.length, "reviewDurations");
+        }
+
+        ReviewBatch reviewBatch = new ReviewBatch(ratings, reviewDurations);
+
+        Instant now = null;
+        CardState cardState = new CardState();
+
+        int i = 0;
+        for (Card card : cards) {
+
+            Instant reviewDatetime = reviewDatetimes == null ? null : reviewDatetimes[i];
+            if (reviewDatetime == null) {
+                if (now == null) {
+                    now = Instant.now();
+                }
+                reviewDatetime = now;
+            }
+
+            try {
+                int daysSinceLastReview = 0;
+                if (card.getLastReview() != null) {
+                    daysSinceLastReview = daysBetween(card.getLastReview(), reviewDatetime);
+                }
+
+                cardState.set(card);
+                long nextIntervalMillis =
+                        reviewCardState(
+                                cardState,
+                                ratings[i],
+                                reviewDatetime.toEpochMilli(),
+                                daysSinceLastReview);
+
+                reviewBatch.set(i, cardState, reviewDatetime, nextIntervalMillis);
+            } catch (RuntimeException e) {
+                if (failures == null) {
+                    throw e;
+                }
+                failures[i] = e;
+            }
+            i++;
+        }
+
+        return reviewBatch;
+    }
+
+    public ReviewBatch reviewCards(
+            @NonNull List<Card> cards, @NonNull Rating[] ratings, Instant[] reviewDatetimes) {
+
+        return reviewCards(cards, ratings, reviewDatetimes, null);
+    }
+
+    /*
+    reviews each CardState in place, equivalent to calling
+    reviewCard(cards[i], ratings[i], reviewEpochMillis[i]) for every index in order
+    */
+    public void reviewCards(
+            @NonNull CardState[] cards,
+            @NonNull Rating[] ratings,
+            @NonNull long[] reviewEpochMillis) {
+
+        checkBatchLength(cards.length, ratings.length, "ratings");
+        checkBatchLength(cards.length, reviewEpochMillis.length, "reviewEpochMillis");
+
+        for (int i = 0; i < cards.length; i++) {
+            reviewCard(cards[i], ratings[i], reviewEpochMillis[i]);
+        }
+    }
+
+    /*
+    reviews the card at index in place through a CardState kept per thread, so no objects are
+    allocated. a listener that itself reviews CardStateStore cards must pass its own cardState
+    to the overload below, since the per-thread one is in use while the listener is called
+    */
+    public void reviewCard(
+            @NonNull CardStateStore cards,
+            int index,
+            @NonNull Rating rating,
+            long reviewEpochMillis) {
+
+        reviewCard(cards, index, rating, reviewEpochMillis, STORE_CARD_STATE.get());
+    }
+
+    /*
+    the same, reading the card into the given cardState, which is overwritten
+    */
+    public void reviewCard(
+            @NonNull CardStateStore cards,
+            int index,
+            @NonNull Rating rating,
+            long reviewEpochMillis,
+            @NonNull CardState cardState) {
+
+        cards.get(index, cardState);
+        reviewCard(cardState, rating, reviewEpochMillis);
+        cards.set(index, cardState);
+    }
+
+    public void reviewCards(
+            @NonNull CardStateStore cards,
+            @NonNull int[] indices,
+            @NonNull Rating[] ratings,
+            @NonNull long[] reviewEpochMillis) {
+
+        checkBatchLength(indices.length, ratings.length, "ratings");
+        checkBatchLength(indices.length, reviewEpochMillis.length, "reviewEpochMillis");
+
+        CardState cardState = new CardState();
+        for (int i = 0; i < indices.length; i++) {
+            reviewCard(cards, indices[i], ratings[i], reviewEpochMillis[i], cardState);
+        }
+    }
+
+    private static void checkBatchLength(int expected, int actual, String name) {
+
+        if (expected != actual) {
+            throw new IllegalArgumentException(
+                    name + " has length " + actual + " but there are " + expected + " cards");
+        }
+    }
 }
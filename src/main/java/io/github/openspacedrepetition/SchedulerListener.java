@@ -0,0 +1,28 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+/*
+receives an event for every review scheduled by a Scheduler built with this listener
+
+listeners are called synchronously on the reviewing thread, so they must be thread-safe and
+cheap. SchedulerMetrics counts the events with LongAdders, other metrics libraries can be
+adapted by implementing this interface. previews do not produce events
+*/
+@FunctionalInterface
+public interface SchedulerListener {
+
+    /*
+    previousState is the card's state before the review and state the one after. sameDayReview
+    is true when the short-term stability formula was used, maximumIntervalReached when capping
+    the next interval or its fuzz at the scheduler's maximumInterval shortened it (not when it
+    is exactly maximumInterval anyway), and durationNanos is the time spent computing the review
+    */
+    void onReview(
+            State previousState,
+            Rating rating,
+            State state,
+            boolean sameDayReview,
+            boolean maximumIntervalReached,
+            long intervalMillis,
+            long durationNanos);
+}
@@ -0,0 +1,159 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ObjLongConsumer;
+import lombok.NonNull;
+
+/*
+a SchedulerListener that counts reviews with LongAdders, which stay cheap under contention
+
+review durations are kept in a histogram of power-of-two buckets, so percentiles are
+approximate to within a factor of two. export passes every counter, the histogram buckets and
+a few percentiles to a metrics library under names like fsrs.reviews.review.good
+*/
+public class SchedulerMetrics implements SchedulerListener {
+
+    private static final State[] STATES = State.values();
+    private static final Rating[] RATINGS = Rating.values();
+    private static final int BUCKETS = Long.SIZE;
+    private static final double[] EXPORTED_PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String[] EXPORTED_PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+
+    private final LongAdder[] reviewCounts = newAdders(STATES.length * RATINGS.length);
+    private final LongAdder sameDayReviewCount = new LongAdder();
+    private final LongAdder maximumIntervalCount = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder[] durationBuckets = newAdders(BUCKETS);
+
+    private static LongAdder[] newAdders(int length) {
+
+        LongAdder[] adders = new LongAdder[length];
+        for (int i = 0; i < length; i++) {
+            adders[i] = new LongAdder();
+        }
+
+        return adders;
+    }
+
+    @Override
+    public void onReview(
+            State previousState,
+            Rating rating,
+            State state,
+            boolean sameDayReview,
+            boolean maximumIntervalReached,
+            long intervalMillis,
+            long durationNanos) {
+
+        this.reviewCounts[previousState.ordinal() * RATINGS.length + rating.ordinal()].increment();
+        if (sameDayReview) {
+            this.sameDayReviewCount.increment();
+        }
+        if (maximumIntervalReached) {
+            this.maximumIntervalCount.increment();
+        }
+
+        durationNanos = Math.max(durationNanos, 0);
+        this.totalNanos.add(durationNanos);
+        this.maxNanos.accumulate(durationNanos);
+
+        // bucket b holds durations in [2^(b-1), 2^b)
+        this.durationBuckets[BUCKETS - Long.numberOfLeadingZeros(durationNanos)].increment();
+    }
+
+    public long getReviewCount() {
+
+        long count = 0;
+        for (LongAdder reviewCount : this.reviewCounts) {
+            count += reviewCount.sum();
+        }
+
+        return count;
+    }
+
+    /*
+    reviews of cards that were in the given state before the review
+    */
+    public long getReviewCount(@NonNull State state, @NonNull Rating rating) {
+        return this.reviewCounts[state.ordinal() * RATINGS.length + rating.ordinal()].sum();
+    }
+
+    public long getSameDayReviewCount() {
+        return this.sameDayReviewCount.sum();
+    }
+
+    public long getMaximumIntervalCount() {
+        return this.maximumIntervalCount.sum();
+    }
+
+    public long getTotalNanos() {
+        return this.totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return this.maxNanos.get();
+    }
+
+    /*
+    an upper bound on the review duration below which the given fraction of reviews fall
+    */
+    public long getPercentileNanos(double percentile) {
+
+        if (percentile < 0 || percentile > 1) {
+            throw new IllegalArgumentException("percentile must be between 0 and 1");
+        }
+
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts[bucket] = this.durationBuckets[bucket].sum();
+            total += counts[bucket];
+        }
+
+        long rank = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank && counts[bucket] > 0) {
+                return bucket == 0 ? 0 : Math.min((1L << bucket) - 1, getMaxNanos());
+            }
+        }
+
+        return 0;
+    }
+
+    public void export(@NonNull ObjLongConsumer<String> sink) {
+
+        for (State state : STATES) {
+            for (Rating rating : RATINGS) {
+                sink.accept(
+                        "fsrs.reviews."
+                                + state.name().toLowerCase(Locale.ROOT)
+                                + "."
+                                + rating.name().toLowerCase(Locale.ROOT),
+                        getReviewCount(state, rating));
+            }
+        }
+        sink.accept("fsrs.reviews.same_day", getSameDayReviewCount());
+        sink.accept("fsrs.reviews.maximum_interval", getMaximumIntervalCount());
+        sink.accept("fsrs.reviews.total_nanos", getTotalNanos());
+        sink.accept("fsrs.reviews.max_nanos", getMaxNanos());
+
+        // bucket b counts the reviews that took at most 2^b - 1 nanoseconds and more than the
+        // previous bucket's bound
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            sink.accept(
+                    "fsrs.reviews.duration_nanos.bucket." + bucket,
+                    this.durationBuckets[bucket].sum());
+        }
+        for (int i = 0; i < EXPORTED_PERCENTILES.length; i++) {
+            sink.accept(
+                    "fsrs.reviews.duration_nanos." + EXPORTED_PERCENTILE_NAMES[i],
+                    getPercentileNanos(EXPORTED_PERCENTILES[i]));
+        }
+    }
+}
@@ -0,0 +1,309 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import lombok.NonNull;
+
+/*
+a bounded, least-recently-used cache of Schedulers keyed by their configuration
+
+for serving many users that each have their own parameters: looking up a configuration that
+was seen before returns the same Scheduler instance instead of building a new one. the key is
+the full configuration (parameters, desiredRetention, learning and relearning steps,
+maximumInterval, the fuzzing and time zone settings and the listener), compared by value
+
+lookups go to a ConcurrentHashMap without locking, and only stamp the found entry with
+System.nanoTime() so that they do not write any state shared between configurations. when a
+registration takes the cache over maximumSize, the least recently used schedulers are evicted
+in one batch
+
+schedulers with fuzzing enabled but not deterministicFuzzing share their Random between all
+users of the same configuration, as they would when sharing a Scheduler directly
+*/
+public class SchedulerRegistry {
+
+    /*
+    a snapshot of a scheduler configuration, the arrays are copied so later changes to the
+    builder's arrays do not change the key
+    */
+    static final class Key {
+
+        private final double[] parameters;
+        private final double desiredRetention;
+        private final Duration[] learningSteps;
+        private final Duration[] relearningSteps;
+        private final int maximumInterval;
+        private final boolean enableFuzzing;
+        private final int randomSeedNumber;
+        private final boolean deterministicFuzzing;
+        private final ZoneId timeZone;
+        private final Duration dayStartOffset;
+        private final SchedulerListener listener;
+        private final int hashCode;
+
+        Key(
+                double[] parameters,
+                double desiredRetention,
+                Duration[] learningSteps,
+                Duration[] relearningSteps,
+                int maximumInterval,
+                boolean enableFuzzing,
+                int randomSeedNumber,
+                boolean deterministicFuzzing,
+                ZoneId timeZone,
+                Duration dayStartOffset,
+                SchedulerListener listener) {
+
+            this.parameters = parameters.clone();
+            this.desiredRetention = desiredRetention;
+            this.learningSteps = learningSteps.clone();
+            this.relearningSteps = relearningSteps.clone();
+            this.maximumInterval = maximumInterval;
+            this.enableFuzzing = enableFuzzing;
+            this.randomSeedNumber = randomSeedNumber;
+            this.deterministicFuzzing = deterministicFuzzing;
+            this.timeZone = timeZone;
+            this.dayStartOffset = dayStartOffset;
+            this.listener = listener;
+
+            int hashCode = Arrays.hashCode(this.parameters);
+            hashCode = 31 * hashCode + Double.hashCode(desiredRetention);
+            hashCode = 31 * hashCode + Arrays.hashCode(this.learningSteps);
+            hashCode = 31 * hashCode + Arrays.hashCode(this.relearningSteps);
+            hashCode = 31 * hashCode + maximumInterval;
+            hashCode = 31 * hashCode + Boolean.hashCode(enableFuzzing);
+            hashCode = 31 * hashCode + randomSeedNumber;
+            hashCode = 31 * hashCode + Boolean.hashCode(deterministicFuzzing);
+            hashCode = 31 * hashCode + Objects.hashCode(timeZone);
+            hashCode = 31 * hashCode + Objects.hashCode(dayStartOffset);
+            hashCode = 31 * hashCode + Objects.hashCode(listener);
+            this.hashCode = hashCode;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key key) || this.hashCode != key.hashCode) {
+                return false;
+            }
+
+            return Arrays.equals(this.parameters, key.parameters)
+                    && Double.compare(this.desiredRetention, key.desiredRetention) == 0
+                    && Arrays.equals(this.learningSteps, key.learningSteps)
+                    && Arrays.equals(this.relearningSteps, key.relearningSteps)
+                    && this.maximumInterval == key.maximumInterval
+                    && this.enableFuzzing == key.enableFuzzing
+                    && this.randomSeedNumber == key.randomSeedNumber
+                    && this.deterministicFuzzing == key.deterministicFuzzing
+                    && Objects.equals(this.timeZone, key.timeZone)
+                    && Objects.equals(this.dayStartOffset, key.dayStartOffset)
+                    && Objects.equals(this.listener, key.listener);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+    }
+
+    /*
+    a registered scheduler and the System.nanoTime() of its latest lookup. lastAccess is only
+    an approximate recency for eviction, so it is written and read with opaque access, which is
+    atomic but adds no memory fences to the lookup
+    */
+    private static final class Entry {
+
+        private static final VarHandle LAST_ACCESS;
+
+        static {
+            try {
+                LAST_ACCESS =
+                        MethodHandles.lookup().findVarHandle(Entry.class, "lastAccess", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final Scheduler scheduler;
+
+        @SuppressWarnings("unused") // accessed through LAST_ACCESS
+        private long lastAccess;
+
+        private Entry(Scheduler scheduler) {
+
+            this.scheduler = scheduler;
+            touch();
+        }
+
+        private void touch() {
+            LAST_ACCESS.setOpaque(this, System.nanoTime());
+        }
+
+        private long lastAccess() {
+            return (long) LAST_ACCESS.getOpaque(this);
+        }
+    }
+
+    private final int maximumSize;
+    private final ConcurrentHashMap<Key, Entry> schedulers = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    public SchedulerRegistry(int maximumSize) {
+
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be positive");
+        }
+
+        this.maximumSize = maximumSize;
+    }
+
+    /*
+    the registered Scheduler with the builder's configuration, building and registering one if
+    there is none
+    */
+    public Scheduler get(@NonNull Scheduler.Builder builder) {
+
+        Key key = builder.registryKey();
+
+        Scheduler scheduler = lookup(key);
+        if (scheduler != null) {
+            return scheduler;
+        }
+
+        // build outside the map, if another thread registered one meanwhile that one is kept
+        return register(key, builder.build());
+    }
+
+    /*
+    the registered Scheduler with the same configuration as the given one, registering it if
+    there is none
+    */
+    public Scheduler intern(@NonNull Scheduler scheduler) {
+
+        Key key = scheduler.registryKey();
+
+        Scheduler registered = lookup(key);
+        if (registered != null) {
+            return registered;
+        }
+
+        return register(key, scheduler);
+    }
+
+    public Scheduler fromJson(@NonNull String json) {
+
+        return intern(Scheduler.fromJson(json));
+    }
+
+    private Scheduler lookup(Key key) {
+
+        Entry entry = this.schedulers.get(key);
+        if (entry == null) {
+            this.missCount.increment();
+            return null;
+        }
+
+        entry.touch();
+        this.hitCount.increment();
+
+        return entry.scheduler;
+    }
+
+    private Scheduler register(Key key, Scheduler scheduler) {
+
+        Entry entry = new Entry(scheduler);
+        Entry registered = this.schedulers.putIfAbsent(key, entry);
+        if (registered != null) {
+            return registered.scheduler;
+        }
+
+        if (this.schedulers.size() > this.maximumSize) {
+            evict();
+        }
+
+        return scheduler;
+    }
+
+    /*
+    removes the least recently used schedulers, down to a sixteenth below maximumSize so that
+    the scan is not repeated on every registration. only one thread evicts at a time, the others
+    go on without waiting
+    */
+    private void evict() {
+
+        if (!this.evictionLock.tryLock()) {
+            return;
+        }
+
+        try {
+            int excess = this.schedulers.size() - (this.maximumSize - this.maximumSize / 16);
+            if (excess <= 0) {
+                return;
+            }
+
+            // lookups keep updating lastAccess, so it is read once before sorting. nanoTime
+            // values are only compared by their difference, here as the age at the start of the
+            // scan
+            record Candidate(Key key, Entry entry, long age) {}
+
+            long now = System.nanoTime();
+            List<Candidate> candidates = new ArrayList<>(this.schedulers.size());
+            for (Map.Entry<Key, Entry> entry : this.schedulers.entrySet()) {
+                candidates.add(
+                        new Candidate(
+                                entry.getKey(),
+                                entry.getValue(),
+                                now - entry.getValue().lastAccess()));
+            }
+            candidates.sort(Comparator.comparingLong(Candidate::age).reversed());
+
+            for (int i = 0; i < excess && i < candidates.size(); i++) {
+
+                Candidate candidate = candidates.get(i);
+                if (this.schedulers.remove(candidate.key(), candidate.entry())) {
+                    this.evictionCount.increment();
+                }
+            }
+        } finally {
+            this.evictionLock.unlock();
+        }
+    }
+
+    public long getHitCount() {
+        return this.hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return this.missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return this.evictionCount.sum();
+    }
+
+    public int size() {
+        return this.schedulers.size();
+    }
+
+    public void clear() {
+        this.schedulers.clear();
+    }
+}
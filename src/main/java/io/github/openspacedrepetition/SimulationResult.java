@@ -0,0 +1,113 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+/*
+per-day totals of a Simulator run, summed over all simulated users
+
+reviews count every review of an already learned card, including (re)learning steps, and
+retention is the fraction of those reviews that were recalled
+*/
+public final class SimulationResult {
+
+    static final class Totals {
+
+        final long[] learnCounts;
+        final long[] reviewCounts;
+        final long[] recallCounts;
+        final double[] costMillis;
+        double memorized;
+
+        Totals(int numDays) {
+
+            this.learnCounts = new long[numDays];
+            this.reviewCounts = new long[numDays];
+            this.recallCounts = new long[numDays];
+            this.costMillis = new double[numDays];
+        }
+
+        void add(Totals other) {
+
+            for (int day = 0; day < this.learnCounts.length; day++) {
+                this.learnCounts[day] += other.learnCounts[day];
+                this.reviewCounts[day] += other.reviewCounts[day];
+                this.recallCounts[day] += other.recallCounts[day];
+                this.costMillis[day] += other.costMillis[day];
+            }
+            this.memorized += other.memorized;
+        }
+    }
+
+    private final Totals totals;
+
+    SimulationResult(Totals totals) {
+
+        this.totals = totals;
+    }
+
+    public int getNumDays() {
+        return this.totals.learnCounts.length;
+    }
+
+    public long getLearnCount(int day) {
+        return this.totals.learnCounts[day];
+    }
+
+    public long getReviewCount(int day) {
+        return this.totals.reviewCounts[day];
+    }
+
+    public long getRecallCount(int day) {
+        return this.totals.recallCounts[day];
+    }
+
+    /*
+    total time spent learning and reviewing on the given day, in milliseconds
+    */
+    public double getCostMillis(int day) {
+        return this.totals.costMillis[day];
+    }
+
+    /*
+    expected number of learned cards that would be recalled at the end of the simulation
+    */
+    public double getMemorized() {
+        return this.totals.memorized;
+    }
+
+    public double getRetention(int day) {
+
+        long reviewCount = getReviewCount(day);
+        return reviewCount == 0 ? Double.NaN : (double) getRecallCount(day) / reviewCount;
+    }
+
+    public long getTotalReviewCount() {
+
+        long total = 0;
+        for (long reviewCount : this.totals.reviewCounts) {
+            total += reviewCount;
+        }
+
+        return total;
+    }
+
+    public double getTotalCostMillis() {
+
+        double total = 0;
+        for (double costMillis : this.totals.costMillis) {
+            total += costMillis;
+        }
+
+        return total;
+    }
+
+    public double getRetention() {
+
+        long recallCount = 0;
+        for (long count : this.totals.recallCounts) {
+            recallCount += count;
+        }
+
+        long reviewCount = getTotalReviewCount();
+        return reviewCount == 0 ? Double.NaN : (double) recallCount / reviewCount;
+    }
+}
@@ -0,0 +1,364 @@
+/* (C)2026 */
+package io.github.openspacedrepetition;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+/*
+simulates numUsers independent learners, each with a deck of numCards new cards, reviewing
+with a Scheduler for numDays days
+
+each day a user first reviews their due cards in the REVIEW state (at most reviewLimit of
+them), then learns up to learnLimit new cards, then keeps working through (re)learning steps
+that fall due before the end of the day. whether a card is recalled is drawn from its
+retrievability at the time of review, and ratings and review durations are drawn from the
+configured distributions
+
+users are simulated in parallel on a fork-join pool over CardStores, and each user has their
+own random stream so the result does not depend on the number of threads. for the same
+reason the Scheduler must use deterministicFuzzing or no fuzzing, which the default does
+*/
+@Getter
+public class Simulator {
+
+    private static final long MILLIS_PER_DAY = Duration.ofDays(1).toMillis();
+    private static final int SPLIT_THRESHOLD_CARDS = 1 << 14;
+
+    // from the FSRS benchmark's default simulator settings
+    private static final double[] DEFAULT_FIRST_RATING_PROBABILITIES = {0.24, 0.094, 0.495, 0.171};
+    private static final double[] DEFAULT_RECALL_RATING_PROBABILITIES = {0.0, 0.224, 0.631, 0.145};
+    private static final double[] DEFAULT_LEARN_DURATIONS_MILLIS = {33790, 24300, 13680, 6500};
+    private static final double[] DEFAULT_REVIEW_DURATIONS_MILLIS = {23000, 11680, 7330, 5600};
+
+    private final Scheduler scheduler;
+    private final int numUsers;
+    private final int numCards;
+    private final int numDays;
+    private final int learnLimit;
+    private final int reviewLimit;
+
+    // copied from the builder and only handed out as copies, so a simulation cannot be changed
+    // after it is built
+    @Getter(AccessLevel.NONE)
+    private final double[] firstRatingProbabilities;
+
+    @Getter(AccessLevel.NONE)
+    private final double[] recallRatingProbabilities;
+
+    @Getter(AccessLevel.NONE)
+    private final double[] learnDurationsMillis;
+
+    @Getter(AccessLevel.NONE)
+    private final double[] reviewDurationsMillis;
+
+    private final long seed;
+    private final ForkJoinPool pool;
+
+    private Simulator(@NonNull Builder builder) {
+
+        this.scheduler = builder.scheduler;
+        this.numUsers = builder.numUsers;
+        this.numCards = builder.numCards;
+        this.numDays = builder.numDays;
+        this.learnLimit = builder.learnLimit;
+        this.reviewLimit = builder.reviewLimit;
+        this.firstRatingProbabilities = builder.firstRatingProbabilities.clone();
+        this.recallRatingProbabilities = builder.recallRatingProbabilities.clone();
+        this.learnDurationsMillis = builder.learnDurationsMillis.clone();
+        this.reviewDurationsMillis = builder.reviewDurationsMillis.clone();
+        this.seed = builder.seed;
+        this.pool = builder.pool;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public double[] getFirstRatingProbabilities() {
+        return this.firstRatingProbabilities.clone();
+    }
+
+    public double[] getRecallRatingProbabilities() {
+        return this.recallRatingProbabilities.clone();
+    }
+
+    public double[] getLearnDurationsMillis() {
+        return this.learnDurationsMillis.clone();
+    }
+
+    public double[] getReviewDurationsMillis() {
+        return this.reviewDurationsMillis.clone();
+    }
+
+    @Setter
+    @Accessors(fluent = true, chain = true)
+    public static class Builder {
+
+        private Scheduler scheduler = Scheduler.builder().deterministicFuzzing(true).build();
+        private int numUsers = 1;
+        private int numCards = 1000;
+        private int numDays = 365;
+        private int learnLimit = 20;
+        private int reviewLimit = Integer.MAX_VALUE;
+        private double[] firstRatingProbabilities = DEFAULT_FIRST_RATING_PROBABILITIES;
+        private double[] recallRatingProbabilities = DEFAULT_RECALL_RATING_PROBABILITIES;
+        private double[] learnDurationsMillis = DEFAULT_LEARN_DURATIONS_MILLIS;
+        private double[] reviewDurationsMillis = DEFAULT_REVIEW_DURATIONS_MILLIS;
+        private long seed = 42;
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        public Simulator build() {
+
+            if (this.numUsers < 0 || this.numCards < 0 || this.numDays < 0) {
+                throw new IllegalArgumentException(
+                        "numUsers, numCards and numDays must not be negative");
+            }
+            if (this.learnLimit < 0 || this.reviewLimit < 0) {
+                throw new IllegalArgumentException(
+                        "learnLimit and reviewLimit must not be negative");
+            }
+            if (this.scheduler == null || !this.scheduler.hasReproducibleFuzz()) {
+                throw new IllegalArgumentException(
+                        "scheduler must use deterministicFuzzing or no fuzzing");
+            }
+
+            checkRatingArray(this.firstRatingProbabilities, "firstRatingProbabilities");
+            checkRatingArray(this.recallRatingProbabilities, "recallRatingProbabilities");
+            checkRatingArray(this.learnDurationsMillis, "learnDurationsMillis");
+            checkRatingArray(this.reviewDurationsMillis, "reviewDurationsMillis");
+
+            return new Simulator(this);
+        }
+
+        private static void checkRatingArray(double[] values, String name) {
+
+            if (values == null || values.length != Rating.values().length) {
+                throw new IllegalArgumentException(name + " must have one value per Rating");
+            }
+        }
+    }
+
+    public SimulationResult simulate() {
+
+        return new SimulationResult(this.pool.invoke(new UsersTask(this, 0, this.numUsers)));
+    }
+
+    private static final class UsersTask extends RecursiveTask<SimulationResult.Totals> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Simulator simulator;
+        private final int from;
+        private final int to;
+
+        private UsersTask(Simulator simulator, int from, int to) {
+
+            this.simulator = simulator;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected SimulationResult.Totals compute() {
+
+            if (this.to - this.from <= 1
+                    || (long) (this.to - this.from) * this.simulator.numCards
+                            <= SPLIT_THRESHOLD_CARDS) {
+
+                SimulationResult.Totals totals =
+                        new SimulationResult.Totals(this.simulator.numDays);
+                for (int user = this.from; user < this.to; user++) {
+                    this.simulator.simulateUser(user, totals);
+                }
+
+                return totals;
+            }
+
+            int middle = (this.from + this.to) >>> 1;
+            UsersTask left = new UsersTask(this.simulator, this.from, middle);
+            UsersTask right = new UsersTask(this.simulator, middle, this.to);
+
+            left.fork();
+            SimulationResult.Totals totals = right.compute();
+            totals.add(left.join());
+
+            return totals;
+        }
+    }
+
+    private static double[] cumulative(double[] probabilities) {
+
+        double total = 0;
+        for (double probability : probabilities) {
+            total += probability;
+        }
+
+        double[] cumulative = new double[probabilities.length];
+        double sum = 0;
+        for (int i = 0; i < probabilities.length; i++) {
+            sum += probabilities[i];
+            cumulative[i] = sum / total;
+        }
+
+        return cumulative;
+    }
+
+    private static Rating sampleRating(double[] cumulativeProbabilities, SplittableRandom random) {
+
+        double u = random.nextDouble();
+        Rating[] ratings = Rating.values();
+        for (int i = 0; i < cumulativeProbabilities.length - 1; i++) {
+            if (u < cumulativeProbabilities[i]) {
+                return ratings[i];
+            }
+        }
+
+        return ratings[ratings.length - 1];
+    }
+
+    private void simulateUser(int user, SimulationResult.Totals totals) {
+
+        SplittableRandom random =
+                new SplittableRandom(this.seed ^ (0x9E3779B97F4A7C15L * (user + 1)));
+
+        double[] firstRatings = cumulative(this.firstRatingProbabilities);
+        double[] recallRatingProbabilities = this.recallRatingProbabilities.clone();
+        recallRatingProbabilities[Rating.AGAIN.getValue() - 1] = 0;
+        double[] recallRatings = cumulative(recallRatingProbabilities);
+
+        Scheduler scheduler = this.scheduler;
+        CardStore cards = new CardStore(this.numCards);
+        CardState card = new CardState();
+
+        // indices of the cards due within the current day, and of those reviewed in the last pass
+        int[] due = new int[Math.max(16, Math.min(this.numCards, 1024))];
+        int[] again = new int[due.length];
+
+        for (int day = 0; day < this.numDays; day++) {
+
+            long dayStart = day * MILLIS_PER_DAY;
+            long dayEnd = dayStart + MILLIS_PER_DAY;
+
+            int dueSize = 0;
+
+            // (re)learning cards left over from earlier days
+            for (int i = 0; i < cards.size(); i++) {
+                if (cards.getDueEpochMillis(i) < dayEnd && cards.getState(i) != State.REVIEW) {
+                    due = append(due, dueSize++, i);
+                }
+            }
+
+            // cards in the REVIEW state, subject to the review limit
+            int reviews = 0;
+            for (int i = 0; i < cards.size() && reviews < this.reviewLimit; i++) {
+                if (cards.getDueEpochMillis(i) < dayEnd && cards.getState(i) == State.REVIEW) {
+                    review(scheduler, cards, i, card, dayStart, random, recallRatings, totals, day);
+                    reviews++;
+                    if (cards.getDueEpochMillis(i) < dayEnd) {
+                        due = append(due, dueSize++, i);
+                    }
+                }
+            }
+
+            // new cards
+            int newCards = Math.min(this.learnLimit, this.numCards - cards.size());
+            for (int n = 0; n < newCards; n++) {
+
+                card.setCardId(user * this.numCards + cards.size());
+                card.setState(State.LEARNING);
+                card.setStep(0);
+                card.setStability(Double.NaN);
+                card.setDifficulty(Double.NaN);
+                card.setDueEpochMillis(dayStart);
+                card.setLastReviewEpochMillis(CardState.NO_LAST_REVIEW);
+
+                Rating rating = sampleRating(firstRatings, random);
+                scheduler.reviewCard(card, rating, dayStart);
+
+                int index = cards.add(card);
+                totals.learnCounts[day]++;
+                totals.costMillis[day] += this.learnDurationsMillis[rating.getValue() - 1];
+
+                if (card.getDueEpochMillis() < dayEnd) {
+                    due = append(due, dueSize++, index);
+                }
+            }
+
+            // keep stepping through cards that fall due again today
+            while (dueSize > 0) {
+
+                int againSize = 0;
+                for (int d = 0; d < dueSize; d++) {
+
+                    int i = due[d];
+                    if (cards.getDueEpochMillis(i) >= dayEnd) {
+                        continue;
+                    }
+
+                    review(scheduler, cards, i, card, dayStart, random, recallRatings, totals, day);
+                    if (cards.getDueEpochMillis(i) < dayEnd) {
+                        again = append(again, againSize++, i);
+                    }
+                }
+
+                int[] swap = due;
+                due = again;
+                again = swap;
+                dueSize = againSize;
+            }
+        }
+
+        // expected number of cards remembered at the end of the simulation
+        long end = this.numDays * MILLIS_PER_DAY;
+        for (int i = 0; i < cards.size(); i++) {
+            totals.memorized += scheduler.getCardRetrievability(cards.get(i, card), end);
+        }
+    }
+
+    private void review(
+            Scheduler scheduler,
+            CardStore cards,
+            int index,
+            CardState card,
+            long dayStart,
+            SplittableRandom random,
+            double[] recallRatings,
+            SimulationResult.Totals totals,
+            int day) {
+
+        cards.get(index, card);
+        long reviewEpochMillis = Math.max(card.getDueEpochMillis(), dayStart);
+
+        Rating rating;
+        if (random.nextDouble() < scheduler.getCardRetrievability(card, reviewEpochMillis)) {
+            rating = sampleRating(recallRatings, random);
+            totals.recallCounts[day]++;
+        } else {
+            rating = Rating.AGAIN;
+        }
+
+        scheduler.reviewCard(card, rating, reviewEpochMillis);
+        cards.set(index, card);
+
+        totals.reviewCounts[day]++;
+        totals.costMillis[day] += this.reviewDurationsMillis[rating.getValue() - 1];
+    }
+
+    private static int[] append(int[] values, int size, int value) {
+
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size] = value;
+
+        return values;
+    }
+}
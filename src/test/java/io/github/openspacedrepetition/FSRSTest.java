@@ -3,16 +3,38 @@ package io.github.openspacedrepetition;
 
 import static org.assertj.core.api.Assertions.*;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.io.TempDir;
 
 public class FSRSTest {
 
@@ -111,6 +133,1113 @@ public class FSRSTest {
         assertThat(card.getDifficulty()).isCloseTo(6.8271, within(0.0001));
     }
 
+    @Test
+    void testReviewCardState() {
+
+        // two schedulers with the same seed so that both paths draw the same fuzz
+        Scheduler scheduler = Scheduler.builder().build();
+        Scheduler primitiveScheduler = Scheduler.builder().build();
+
+        Rating[] ratings = {
+            Rating.GOOD,
+            Rating.HARD,
+            Rating.GOOD,
+            Rating.EASY,
+            Rating.GOOD,
+            Rating.AGAIN,
+            Rating.HARD,
+            Rating.AGAIN,
+            Rating.GOOD,
+            Rating.GOOD,
+            Rating.EASY,
+            Rating.GOOD,
+        };
+
+        Instant reviewDatetime = Instant.parse("2022-11-29T12:30:00Z");
+        Card card = Card.builder().cardId(1).due(reviewDatetime).build();
+        CardState cardState = new CardState(card);
+
+        for (Rating rating : ratings) {
+
+            card = scheduler.reviewCard(card, rating, reviewDatetime).card();
+            primitiveScheduler.reviewCard(cardState, rating, reviewDatetime.toEpochMilli());
+
+            assertThat(cardState.toCard()).isEqualTo(card);
+            assertThat(new CardState(card)).isEqualTo(cardState);
+
+            reviewDatetime = card.getDue();
+        }
+    }
+
+    @Test
+    void testReviewCards() {
+
+        Scheduler scheduler = Scheduler.builder().build();
+        Scheduler batchScheduler = Scheduler.builder().build();
+
+        Instant reviewDatetime = Instant.parse("2022-11-29T12:30:00Z");
+
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            cards.add(Card.builder().cardId(i).due(reviewDatetime).build());
+        }
+
+        Rating[] allRatings = Rating.values();
+
+        for (int round = 0; round < 5; round++) {
+
+            Rating[] ratings = new Rating[cards.size()];
+            Instant[] reviewDatetimes = new Instant[cards.size()];
+            Integer[] reviewDurations = new Integer[cards.size()];
+            for (int i = 0; i < cards.size(); i++) {
+                ratings[i] = allRatings[(i + round) % allRatings.length];
+                reviewDatetimes[i] = cards.get(i).getDue();
+                reviewDurations[i] = i * 100;
+            }
+
+            ReviewBatch reviewBatch =
+                    batchScheduler.reviewCards(cards, ratings, reviewDatetimes, reviewDurations);
+
+            assertThat(reviewBatch.size()).isEqualTo(cards.size());
+
+            List<Card> reviewedCards = new ArrayList<>();
+            for (int i = 0; i < cards.size(); i++) {
+
+                CardAndReviewLog result =
+                        scheduler.reviewCard(
+                                cards.get(i), ratings[i], reviewDatetimes[i], reviewDurations[i]);
+
+                assertThat(reviewBatch.getCard(i)).isEqualTo(result.card());
+                assertThat(reviewBatch.getReviewLog(i)).isEqualTo(result.reviewLog());
+
+                reviewedCards.add(result.card());
+            }
+            cards = reviewedCards;
+        }
+
+        CardState[] cardStates = new CardState[cards.size()];
+        Rating[] ratings = new Rating[cards.size()];
+        long[] reviewEpochMillis = new long[cards.size()];
+        for (int i = 0; i < cards.size(); i++) {
+            cardStates[i] = new CardState(cards.get(i));
+            ratings[i] = Rating.GOOD;
+            reviewEpochMillis[i] = cards.get(i).getDue().toEpochMilli();
+        }
+
+        batchScheduler.reviewCards(cardStates, ratings, reviewEpochMillis);
+
+        for (int i = 0; i < cards.size(); i++) {
+
+            Card card =
+                    scheduler.reviewCard(cards.get(i), Rating.GOOD, cards.get(i).getDue()).card();
+            assertThat(cardStates[i].toCard()).isEqualTo(card);
+        }
+
+        assertThatThrownBy(
+                        () ->
+                                scheduler.reviewCards(
+                                        List.of(Card.builder().build()), new Rating[0], null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testCardStore() {
+
+        Scheduler scheduler = Scheduler.builder().build();
+        Scheduler storeScheduler = Scheduler.builder().build();
+
+        Instant reviewDatetime = Instant.parse("2022-11-29T12:30:00Z");
+
+        CardStore cardStore = new CardStore(0);
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Card card = Card.builder().cardId(i).due(reviewDatetime).build();
+            assertThat(cardStore.add(card)).isEqualTo(i);
+            cards.add(card);
+        }
+
+        assertThat(cardStore.size()).isEqualTo(50);
+        assertThat(cardStore.getCard(7)).isEqualTo(cards.get(7));
+
+        Rating[] allRatings = Rating.values();
+        CardState cardState = new CardState();
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < cards.size(); i++) {
+
+                Rating rating = allRatings[(i * 7 + round) % allRatings.length];
+                Instant due = cards.get(i).getDue();
+
+                cards.set(i, scheduler.reviewCard(cards.get(i), rating, due).card());
+                if (round % 2 == 0) {
+                    storeScheduler.reviewCard(cardStore, i, rating, due.toEpochMilli());
+                } else {
+                    storeScheduler.reviewCard(cardStore, i, rating, due.toEpochMilli(), cardState);
+                }
+
+                assertThat(cardStore.getCard(i)).isEqualTo(cards.get(i));
+            }
+        }
+
+        int[] indices = {3, 1, 4};
+        Rating[] ratings = {Rating.AGAIN, Rating.GOOD, Rating.EASY};
+        long[] reviewEpochMillis = new long[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            reviewEpochMillis[i] = cards.get(indices[i]).getDue().toEpochMilli();
+        }
+
+        storeScheduler.reviewCards(cardStore, indices, ratings, reviewEpochMillis);
+
+        for (int i = 0; i < indices.length; i++) {
+
+            Card card = cards.get(indices[i]);
+            card = scheduler.reviewCard(card, ratings[i], card.getDue()).card();
+            assertThat(cardStore.getCard(indices[i])).isEqualTo(card);
+        }
+
+        assertThatThrownBy(() -> cardStore.getCard(50))
+                .isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    void testMappedCardStore(@TempDir Path tempDir) throws IOException {
+
+        Scheduler scheduler = Scheduler.builder().enableFuzzing(false).build();
+        Path path = tempDir.resolve("cards.bin");
+
+        Instant reviewDatetime = Instant.parse("2022-11-29T12:30:00Z");
+
+        List<Card> cards = new ArrayList<>();
+        try (MappedCardStore cardStore = MappedCardStore.open(path)) {
+
+            for (int i = 0; i < 2000; i++) {
+                Card card = Card.builder().cardId(i).due(reviewDatetime).build();
+                cardStore.add(card);
+                cards.add(card);
+            }
+
+            for (int i = 0; i < cards.size(); i++) {
+
+                Rating rating = Rating.values()[i % 4];
+                Instant due = cards.get(i).getDue();
+
+                cards.set(i, scheduler.reviewCard(cards.get(i), rating, due).card());
+                scheduler.reviewCard(cardStore, i, rating, due.toEpochMilli());
+            }
+        }
+
+        // reopening the file only maps it
+        try (MappedCardStore cardStore = MappedCardStore.open(path)) {
+
+            assertThat(cardStore.size()).isEqualTo(cards.size());
+            for (int i = 0; i < cards.size(); i++) {
+                assertThat(cardStore.getCard(i)).isEqualTo(cards.get(i));
+            }
+
+            assertThat(cardStore.add(Card.builder().cardId(-1).build())).isEqualTo(cards.size());
+        }
+
+        Path notACardStateFile = tempDir.resolve("other.bin");
+        Files.write(notACardStateFile, new byte[] {1, 2, 3, 4});
+        assertThatThrownBy(() -> MappedCardStore.open(notACardStateFile))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void testDueIndex() {
+
+        Scheduler scheduler = Scheduler.builder().build();
+
+        Instant start = Instant.parse("2022-11-29T12:30:00Z");
+
+        CardStore cardStore = new CardStore();
+        for (int i = 0; i < 500; i++) {
+            cardStore.add(Card.builder().cardId(i).due(start).build());
+        }
+
+        DueIndex dueIndex = new DueIndex(cardStore);
+        assertThat(dueIndex.countDueBefore(start)).isEqualTo(500);
+
+        Rating[] allRatings = Rating.values();
+        for (int i = 0; i < cardStore.size(); i++) {
+            for (int j = 0; j <= i % 5; j++) {
+                long due = cardStore.getDueEpochMillis(i);
+                scheduler.reviewCard(cardStore, i, allRatings[(i + j) % 4], due);
+            }
+            dueIndex.update(i);
+        }
+
+        Instant before = start.plus(Duration.ofDays(10));
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < cardStore.size(); i++) {
+            if (cardStore.getDueEpochMillis(i) <= before.toEpochMilli()) {
+                expected.add(i);
+            }
+        }
+
+        assertThat(DueIndex.scanDueBefore(cardStore, before))
+                .containsExactly(expected.stream().mapToInt(Integer::intValue).toArray());
+        assertThat(dueIndex.countDueBefore(before)).isEqualTo(expected.size());
+
+        expected.sort(
+                (a, b) ->
+                        Long.compare(
+                                cardStore.getDueEpochMillis(a), cardStore.getDueEpochMillis(b)));
+
+        int[] dueCards = dueIndex.dueBefore(before, 20);
+        assertThat(dueCards).hasSize(20);
+        for (int i = 0; i < dueCards.length; i++) {
+            assertThat(cardStore.getDueEpochMillis(dueCards[i]))
+                    .isEqualTo(cardStore.getDueEpochMillis(expected.get(i)));
+        }
+
+        assertThat(dueIndex.dueBefore(before, Integer.MAX_VALUE)).hasSize(expected.size());
+
+        int added = cardStore.add(Card.builder().cardId(-1).due(start).build());
+        dueIndex.update(added);
+        assertThat(dueIndex.dueBefore(start, 1)).containsExactly(added);
+    }
+
+    @Test
+    void testSimulator() {
+
+        Scheduler scheduler = Scheduler.builder().deterministicFuzzing(true).build();
+
+        Simulator simulator =
+                Simulator.builder()
+                        .scheduler(scheduler)
+                        .numUsers(20)
+                        .numCards(200)
+                        .numDays(60)
+                        .learnLimit(10)
+                        .build();
+        SimulationResult result = simulator.simulate();
+
+        assertThat(result.getNumDays()).isEqualTo(60);
+        long learned = 0;
+        for (int day = 0; day < result.getNumDays(); day++) {
+            learned += result.getLearnCount(day);
+            assertThat(result.getRecallCount(day)).isLessThanOrEqualTo(result.getReviewCount(day));
+        }
+        assertThat(learned).isEqualTo(20 * 200);
+        assertThat(result.getLearnCount(0)).isEqualTo(20 * 10);
+        assertThat(result.getLearnCount(59)).isZero();
+        assertThat(result.getMemorized()).isBetween(0.0, 20 * 200.0);
+        assertThat(result.getRetention()).isBetween(0.7, 1.0);
+        assertThat(result.getTotalCostMillis()).isPositive();
+
+        // the result does not depend on the number of threads
+        ForkJoinPool singleThread = new ForkJoinPool(1);
+        try {
+            SimulationResult singleThreadResult =
+                    Simulator.builder()
+                            .scheduler(scheduler)
+                            .numUsers(20)
+                            .numCards(200)
+                            .numDays(60)
+                            .learnLimit(10)
+                            .pool(singleThread)
+                            .build()
+                            .simulate();
+            for (int day = 0; day < result.getNumDays(); day++) {
+                assertThat(singleThreadResult.getReviewCount(day))
+                        .isEqualTo(result.getReviewCount(day));
+                assertThat(singleThreadResult.getCostMillis(day))
+                        .isEqualTo(result.getCostMillis(day));
+            }
+            assertThat(singleThreadResult.getMemorized()).isEqualTo(result.getMemorized());
+        } finally {
+            singleThread.shutdown();
+        }
+
+        // a higher desired retention costs more reviews
+        SimulationResult highRetentionResult =
+                Simulator.builder()
+                        .scheduler(
+                                Scheduler.builder()
+                                        .deterministicFuzzing(true)
+                                        .desiredRetention(0.97)
+                                        .build())
+                        .numUsers(20)
+                        .numCards(200)
+                        .numDays(60)
+                        .learnLimit(10)
+                        .build()
+                        .simulate();
+        assertThat(highRetentionResult.getTotalReviewCount())
+                .isGreaterThan(result.getTotalReviewCount());
+
+        // the review limit caps the reviews of cards in the REVIEW state
+        SimulationResult limitedResult =
+                Simulator.builder()
+                        .scheduler(scheduler)
+                        .numUsers(20)
+                        .numCards(200)
+                        .numDays(60)
+                        .learnLimit(10)
+                        .reviewLimit(0)
+                        .build()
+                        .simulate();
+        assertThat(limitedResult.getTotalReviewCount()).isLessThan(result.getTotalReviewCount());
+
+        // users share the scheduler, so its fuzz must not depend on the order of reviews
+        assertThat(Simulator.builder().build().getScheduler().isDeterministicFuzzing()).isTrue();
+        assertThatThrownBy(() -> Simulator.builder().scheduler(Scheduler.builder().build()).build())
+                .isInstanceOf(IllegalArgumentException.class);
+        Simulator.builder().scheduler(Scheduler.builder().enableFuzzing(false).build()).build();
+
+        // changing the arrays passed to the builder or returned by the getters changes nothing
+        double[] reviewDurationsMillis = {1000, 1000, 1000, 1000};
+        Simulator copyingSimulator =
+                Simulator.builder()
+                        .scheduler(scheduler)
+                        .numUsers(2)
+                        .numCards(50)
+                        .numDays(30)
+                        .reviewDurationsMillis(reviewDurationsMillis)
+                        .build();
+        double costMillis = copyingSimulator.simulate().getTotalCostMillis();
+        reviewDurationsMillis[0] = 1e9;
+        copyingSimulator.getReviewDurationsMillis()[1] = 1e9;
+        assertThat(copyingSimulator.getReviewDurationsMillis())
+                .containsExactly(1000, 1000, 1000, 1000);
+        assertThat(copyingSimulator.simulate().getTotalCostMillis()).isEqualTo(costMillis);
+    }
+
+    @Test
+    void testAsyncScheduler() throws Exception {
+
+        Scheduler scheduler = Scheduler.builder().enableFuzzing(false).build();
+        Instant reviewDatetime = Instant.parse("2025-01-01T00:00:00Z");
+
+        // concurrent reviews give the same results as reviewing synchronously
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (AsyncScheduler asyncScheduler =
+                AsyncScheduler.builder()
+                        .scheduler(scheduler)
+                        .executor(executor)
+                        .maxBatchSize(16)
+                        .batchWindow(Duration.ofMillis(1))
+                        .build()) {
+
+            List<CompletableFuture<CompletableFuture<CardAndReviewLog>>> submitted =
+                    new ArrayList<>();
+            List<CardAndReviewLog> expected = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+
+                Card card = Card.builder().cardId(i).build();
+                Rating rating = Rating.values()[i % 4];
+                expected.add(scheduler.reviewCard(card, rating, reviewDatetime, i));
+                int reviewDuration = i;
+                submitted.add(
+                        CompletableFuture.supplyAsync(
+                                () ->
+                                        asyncScheduler.reviewAsync(
+                                                card, rating, reviewDatetime, reviewDuration),
+                                callers));
+            }
+
+            for (int i = 0; i < submitted.size(); i++) {
+                assertThat(submitted.get(i).get().get()).isEqualTo(expected.get(i));
+            }
+        } finally {
+            callers.shutdown();
+            executor.shutdown();
+        }
+
+        // reviews beyond the queue capacity are rejected until the queue is drained
+        List<Runnable> tasks = new ArrayList<>();
+        AsyncScheduler asyncScheduler =
+                AsyncScheduler.builder()
+                        .scheduler(scheduler)
+                        .executor(tasks::add)
+                        .queueCapacity(2)
+                        .build();
+
+        Card card = Card.builder().cardId(1).build();
+        CompletableFuture<CardAndReviewLog> first =
+                asyncScheduler.reviewAsync(card, Rating.GOOD, reviewDatetime);
+        CompletableFuture<CardAndReviewLog> second =
+                asyncScheduler.reviewAsync(card, Rating.EASY, reviewDatetime);
+        CompletableFuture<CardAndReviewLog> rejected =
+                asyncScheduler.reviewAsync(card, Rating.HARD, reviewDatetime);
+
+        assertThat(tasks).hasSize(1);
+        assertThat(asyncScheduler.getQueueSize()).isEqualTo(2);
+        assertThat(asyncScheduler.getRemainingCapacity()).isZero();
+        assertThatThrownBy(rejected::get)
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+
+        // closing finishes the queued reviews but rejects new ones
+        asyncScheduler.close();
+        assertThatThrownBy(() -> asyncScheduler.reviewAsync(card, Rating.GOOD).get())
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+
+        tasks.get(0).run();
+        assertThat(first.get()).isEqualTo(scheduler.reviewCard(card, Rating.GOOD, reviewDatetime));
+        assertThat(second.get()).isEqualTo(scheduler.reviewCard(card, Rating.EASY, reviewDatetime));
+        assertThat(asyncScheduler.getQueueSize()).isZero();
+
+        // a failing review fails only its own future and the others are reviewed once
+        tasks.clear();
+        AsyncScheduler batchingScheduler =
+                AsyncScheduler.builder().scheduler(scheduler).executor(tasks::add).build();
+        Card badCard = Card.builder().cardId(2).build();
+        badCard.setDue(null);
+        CompletableFuture<CardAndReviewLog> good =
+                batchingScheduler.reviewAsync(card, Rating.GOOD, reviewDatetime);
+        CompletableFuture<CardAndReviewLog> bad =
+                batchingScheduler.reviewAsync(badCard, Rating.GOOD, reviewDatetime);
+        tasks.get(0).run();
+        assertThat(good.get()).isEqualTo(scheduler.reviewCard(card, Rating.GOOD, reviewDatetime));
+        assertThatThrownBy(bad::get).isInstanceOf(ExecutionException.class);
+
+        // an error escaping a review fails its batch and later reviews are still drained
+        tasks.clear();
+        Scheduler failingScheduler =
+                Scheduler.builder()
+                        .enableFuzzing(false)
+                        .listener(
+                                (previousState,
+                                        rating,
+                                        state,
+                                        sameDayReview,
+                                        maximumIntervalReached,
+                                        intervalMillis,
+                                        durationNanos) -> {
+                                    if (rating == Rating.HARD) {
+                                        throw new AssertionError("listener failed");
+                                    }
+                                })
+                        .build();
+        AsyncScheduler failingAsyncScheduler =
+                AsyncScheduler.builder().scheduler(failingScheduler).executor(tasks::add).build();
+        CompletableFuture<CardAndReviewLog> failed =
+                failingAsyncScheduler.reviewAsync(card, Rating.HARD, reviewDatetime);
+        assertThatThrownBy(() -> tasks.get(0).run()).isInstanceOf(AssertionError.class);
+        assertThatThrownBy(failed::get).hasCauseInstanceOf(AssertionError.class);
+
+        CompletableFuture<CardAndReviewLog> later =
+                failingAsyncScheduler.reviewAsync(card, Rating.GOOD, reviewDatetime);
+        assertThat(tasks).hasSize(2);
+        tasks.get(1).run();
+        assertThat(later.get()).isEqualTo(scheduler.reviewCard(card, Rating.GOOD, reviewDatetime));
+
+        // a batch window needs a dedicated executor
+        assertThatThrownBy(() -> AsyncScheduler.builder().batchWindow(Duration.ofMillis(1)).build())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testSchedulerMetrics() {
+
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        Scheduler scheduler =
+                Scheduler.builder()
+                        .enableFuzzing(false)
+                        .maximumInterval(1)
+                        .listener(metrics)
+                        .build();
+
+        Instant reviewDatetime = Instant.parse("2025-01-01T00:00:00Z");
+        Card card = Card.builder().build();
+
+        // learning steps on the same day, then a review capped at the maximum interval
+        card = scheduler.reviewCard(card, Rating.GOOD, reviewDatetime).card();
+        card = scheduler.reviewCard(card, Rating.AGAIN, card.getDue()).card();
+        card = scheduler.reviewCard(card, Rating.EASY, card.getDue()).card();
+        assertThat(card.getState()).isEqualTo(State.REVIEW);
+        card = scheduler.reviewCard(card, Rating.GOOD, card.getDue()).card();
+
+        // previews are not counted
+        scheduler.preview(card, card.getDue());
+
+        assertThat(metrics.getReviewCount()).isEqualTo(4);
+        assertThat(metrics.getReviewCount(State.LEARNING, Rating.GOOD)).isEqualTo(1);
+        assertThat(metrics.getReviewCount(State.LEARNING, Rating.AGAIN)).isEqualTo(1);
+        assertThat(metrics.getReviewCount(State.LEARNING, Rating.EASY)).isEqualTo(1);
+        assertThat(metrics.getReviewCount(State.REVIEW, Rating.GOOD)).isEqualTo(1);
+        assertThat(metrics.getSameDayReviewCount()).isEqualTo(2);
+        assertThat(metrics.getMaximumIntervalCount()).isEqualTo(2);
+        assertThat(metrics.getPercentileNanos(0.5)).isLessThanOrEqualTo(metrics.getMaxNanos());
+        assertThat(metrics.getMaxNanos()).isLessThanOrEqualTo(metrics.getTotalNanos());
+
+        List<String> names = new ArrayList<>();
+        long[] bucketTotal = {0};
+        metrics.export(
+                (name, value) -> {
+                    names.add(name);
+                    if (name.startsWith("fsrs.reviews.duration_nanos.bucket.")) {
+                        bucketTotal[0] += value;
+                    }
+                });
+        assertThat(names)
+                .contains(
+                        "fsrs.reviews.review.good",
+                        "fsrs.reviews.same_day",
+                        "fsrs.reviews.duration_nanos.bucket.0",
+                        "fsrs.reviews.duration_nanos.p99");
+        assertThat(bucketTotal[0]).isEqualTo(4);
+
+        // an interval that is exactly the maximum interval was not capped
+        Card reviewCard =
+                Scheduler.builder()
+                        .enableFuzzing(false)
+                        .build()
+                        .reviewCard(Card.builder().build(), Rating.EASY, reviewDatetime)
+                        .card();
+        int intervalDays = (int) Duration.between(reviewDatetime, reviewCard.getDue()).toDays();
+        SchedulerMetrics exactMetrics = new SchedulerMetrics();
+        Scheduler exactScheduler =
+                Scheduler.builder()
+                        .enableFuzzing(false)
+                        .maximumInterval(intervalDays)
+                        .listener(exactMetrics)
+                        .build();
+        assertThat(
+                        exactScheduler
+                                .reviewCard(Card.builder().build(), Rating.EASY, reviewDatetime)
+                                .card()
+                                .getDue())
+                .isEqualTo(reviewCard.getDue());
+        assertThat(exactMetrics.getMaximumIntervalCount()).isZero();
+
+        // a listener does not change the fuzzed intervals
+        Scheduler fuzzScheduler =
+                Scheduler.builder().deterministicFuzzing(true).maximumInterval(30).build();
+        Scheduler listenedFuzzScheduler =
+                Scheduler.builder()
+                        .deterministicFuzzing(true)
+                        .maximumInterval(30)
+                        .listener(new SchedulerMetrics())
+                        .build();
+        Card fuzzedCard = Card.builder().cardId(3).due(reviewDatetime).build();
+        for (int i = 0; i < 10; i++) {
+            Card listenedCard =
+                    listenedFuzzScheduler
+                            .reviewCard(fuzzedCard, Rating.GOOD, fuzzedCard.getDue())
+                            .card();
+            fuzzedCard =
+                    fuzzScheduler.reviewCard(fuzzedCard, Rating.GOOD, fuzzedCard.getDue()).card();
+            assertThat(listenedCard).isEqualTo(fuzzedCard);
+        }
+
+        // the listener is not part of the scheduler's configuration
+        assertThat(scheduler.toJson()).doesNotContain("listener");
+        assertThat(scheduler)
+                .isEqualTo(Scheduler.builder().enableFuzzing(false).maximumInterval(1).build());
+    }
+
+    @Test
+    void testSchedulerRegistry() throws Exception {
+
+        SchedulerRegistry registry = new SchedulerRegistry(2);
+
+        double[] parameters = Scheduler.builder().build().getParameters().clone();
+        Scheduler scheduler = registry.get(Scheduler.builder().parameters(parameters));
+
+        // equal configurations share one instance, even from a copied parameter array
+        assertThat(registry.get(Scheduler.builder().parameters(parameters.clone())))
+                .isSameAs(scheduler);
+        assertThat(registry.fromJson(scheduler.toJson())).isSameAs(scheduler);
+        assertThat(registry.intern(Scheduler.builder().build())).isSameAs(scheduler);
+
+        // any difference in configuration is a different scheduler
+        double[] otherParameters = parameters.clone();
+        otherParameters[0] = 0.5;
+        Scheduler otherScheduler = registry.get(Scheduler.builder().parameters(otherParameters));
+        assertThat(otherScheduler).isNotSameAs(scheduler);
+        assertThat(otherScheduler.getParameters()[0]).isEqualTo(0.5);
+
+        assertThat(registry.get(Scheduler.builder().deterministicFuzzing(true)))
+                .isNotSameAs(scheduler);
+        assertThat(registry.getHitCount()).isEqualTo(3);
+        assertThat(registry.getMissCount()).isEqualTo(3);
+
+        // the least recently used configuration is evicted
+        assertThat(registry.size()).isEqualTo(2);
+        assertThat(registry.getEvictionCount()).isEqualTo(1);
+        assertThat(registry.get(Scheduler.builder())).isNotSameAs(scheduler);
+
+        // concurrent lookups of the same configuration agree on one instance
+        registry.clear();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<Scheduler> schedulers =
+                    pool.submit(
+                                    () ->
+                                            IntStream.range(0, 1000)
+                                                    .parallel()
+                                                    .mapToObj(
+                                                            i ->
+                                                                    registry.get(
+                                                                            Scheduler.builder()
+                                                                                    .maximumInterval(
+                                                                                            100)))
+                                                    .toList())
+                            .get();
+            assertThat(schedulers).allMatch(s -> s == schedulers.get(0));
+        } finally {
+            pool.shutdown();
+        }
+
+        // larger registries evict a batch of the least recently used at once
+        SchedulerRegistry largeRegistry = new SchedulerRegistry(32);
+        Scheduler kept = largeRegistry.get(Scheduler.builder().maximumInterval(1));
+        for (int maximumInterval = 2; maximumInterval <= 40; maximumInterval++) {
+            largeRegistry.get(Scheduler.builder().maximumInterval(1));
+            largeRegistry.get(Scheduler.builder().maximumInterval(maximumInterval));
+        }
+        assertThat(largeRegistry.size()).isLessThanOrEqualTo(32);
+        assertThat(largeRegistry.getEvictionCount()).isEqualTo(40 - largeRegistry.size());
+        assertThat(largeRegistry.get(Scheduler.builder().maximumInterval(1))).isSameAs(kept);
+    }
+
+    @Test
+    void testSchedulerImmutable() throws Exception {
+
+        double[] parameters = Scheduler.builder().build().getParameters();
+        Duration[] learningSteps = {Duration.ofMinutes(1), Duration.ofMinutes(10)};
+        Scheduler scheduler =
+                Scheduler.builder()
+                        .parameters(parameters)
+                        .learningSteps(learningSteps)
+                        .deterministicFuzzing(true)
+                        .build();
+        Scheduler expectedScheduler = Scheduler.builder().deterministicFuzzing(true).build();
+
+        // changing the arrays passed to the builder or returned by getters does not change it
+        parameters[0] = 100;
+        learningSteps[0] = Duration.ofDays(1);
+        scheduler.getParameters()[1] = 100;
+        scheduler.getRelearningSteps()[0] = Duration.ofDays(1);
+        assertThat(scheduler).isEqualTo(expectedScheduler);
+        assertThat(scheduler.toJson()).isEqualTo(expectedScheduler.toJson());
+
+        ParameterVector parameterVector = scheduler.getParameterVector();
+        assertThat(parameterVector.size()).isEqualTo(21);
+        assertThat(parameterVector.toArray()).isEqualTo(expectedScheduler.getParameters());
+        assertThat(parameterVector)
+                .isEqualTo(ParameterVector.of(expectedScheduler.getParameters()));
+        assertThat(parameterVector.get(20)).isEqualTo(-scheduler.getDECAY());
+
+        // one instance reviewing from many threads gives the same results as one thread
+        Instant reviewDatetime = Instant.parse("2025-01-01T00:00:00Z");
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Card card = Card.builder().cardId(i).due(reviewDatetime).build();
+            for (int day = 0; day < 5; day++) {
+                card = expectedScheduler.reviewCard(card, Rating.GOOD, card.getDue()).card();
+            }
+            cards.add(card);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(8);
+        try {
+            List<Card> reviewedCards =
+                    pool.submit(
+                                    () ->
+                                            cards.parallelStream()
+                                                    .map(
+                                                            card ->
+                                                                    scheduler
+                                                                            .reviewCard(
+                                                                                    card,
+                                                                                    Rating.GOOD,
+                                                                                    card.getDue())
+                                                                            .card())
+                                                    .toList())
+                            .get();
+            for (int i = 0; i < cards.size(); i++) {
+                assertThat(reviewedCards.get(i))
+                        .isEqualTo(
+                                expectedScheduler
+                                        .reviewCard(
+                                                cards.get(i), Rating.GOOD, cards.get(i).getDue())
+                                        .card());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testCardEventStore() {
+
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        Scheduler scheduler =
+                Scheduler.builder().deterministicFuzzing(true).listener(metrics).build();
+        CardEventStore cardEventStore = new CardEventStore(scheduler, 10);
+
+        // 25 reviews of one card, each on the day it falls due
+        Instant start = Instant.parse("2025-01-01T00:00:00Z");
+        Card card = Card.builder().cardId(7).due(start).build();
+        List<ReviewLog> reviewLogs = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 25; i++) {
+            CardAndReviewLog result =
+                    scheduler.reviewCard(card, Rating.values()[random.nextInt(4)], card.getDue());
+            card = result.card();
+            reviewLogs.add(result.reviewLog());
+        }
+
+        long reviewCount = metrics.getReviewCount();
+        cardEventStore.appendAll(reviewLogs);
+        assertThat(cardEventStore.size()).isEqualTo(1);
+        assertThat(cardEventStore.getSnapshotCount(7)).isEqualTo(2);
+        assertThat(cardEventStore.getReviewLogs(7)).isEqualTo(reviewLogs);
+        assertThat(cardEventStore.getCard(8)).isNull();
+
+        // replayed reviews are not reported to the listener
+        assertThat(cardEventStore.getCard(7)).isEqualTo(card);
+        assertThat(metrics.getReviewCount()).isEqualTo(reviewCount);
+
+        // returned cards do not share state with the snapshots
+        Card returnedCard = cardEventStore.getCard(7);
+        returnedCard.setStability(1.0);
+        assertThat(cardEventStore.getCard(7)).isEqualTo(card);
+
+        // a log appended out of order drops the later snapshots and takes them again
+        CardEventStore outOfOrder = new CardEventStore(scheduler, 10);
+        List<ReviewLog> shuffled = new ArrayList<>(reviewLogs);
+        Collections.swap(shuffled, 3, 24);
+        outOfOrder.appendAll(shuffled);
+        assertThat(outOfOrder.getSnapshotCount(7)).isEqualTo(2);
+        assertThat(outOfOrder.getReviewLogs(7)).isEqualTo(reviewLogs);
+        assertThat(outOfOrder.getCard(7)).isEqualTo(card);
+
+        // snapshots stored by one store are loaded by another without replaying the history
+        byte[] snapshots = BinaryCodec.encodeCards(cardEventStore.getSnapshots(7));
+        CardEventStore loaded = new CardEventStore(scheduler, 10);
+        loaded.load(reviewLogs, BinaryCodec.decodeCards(snapshots));
+        assertThat(loaded.getSnapshots(7)).isEqualTo(cardEventStore.getSnapshots(7));
+        assertThat(loaded.getCard(7)).isEqualTo(card);
+
+        // missing snapshots are taken again
+        loaded.load(reviewLogs, List.of());
+        assertThat(loaded.getSnapshotCount(7)).isEqualTo(2);
+        assertThat(loaded.getCard(7)).isEqualTo(card);
+
+        assertThatThrownBy(() -> loaded.load(shuffled, List.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new CardEventStore(Scheduler.builder().build(), 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testPreview() {
+
+        Scheduler unfuzzedScheduler = Scheduler.builder().enableFuzzing(false).build();
+        Scheduler deterministicScheduler = Scheduler.builder().deterministicFuzzing(true).build();
+        Scheduler randomFuzzScheduler = Scheduler.builder().build();
+
+        // cards in each state, reviewed on their due date and a few days late
+        List<Card> cards = new ArrayList<>();
+        Card card = Card.builder().cardId(1).due(Instant.parse("2025-01-01T00:00:00Z")).build();
+        for (Rating rating :
+                new Rating[] {Rating.GOOD, Rating.GOOD, Rating.GOOD, Rating.AGAIN, Rating.HARD}) {
+            cards.add(card);
+            card = unfuzzedScheduler.reviewCard(card, rating, card.getDue()).card();
+        }
+        cards.add(card);
+
+        for (Card previewedCard : cards) {
+            for (Instant reviewDatetime :
+                    new Instant[] {
+                        previewedCard.getDue(), previewedCard.getDue().plus(Duration.ofDays(3))
+                    }) {
+
+                ReviewPreview unfuzzed = unfuzzedScheduler.preview(previewedCard, reviewDatetime);
+                ReviewPreview deterministic =
+                        deterministicScheduler.preview(previewedCard, reviewDatetime);
+                ReviewPreview randomFuzz =
+                        randomFuzzScheduler.preview(previewedCard, reviewDatetime);
+
+                for (Rating rating : Rating.values()) {
+                    Card reviewedCard =
+                            unfuzzedScheduler
+                                    .reviewCard(previewedCard, rating, reviewDatetime)
+                                    .card();
+                    assertThat(unfuzzed.getCard(rating)).isEqualTo(reviewedCard);
+                    assertThat(unfuzzed.getDue(rating)).isEqualTo(reviewedCard.getDue());
+                    assertThat(unfuzzed.getInterval(rating))
+                            .isEqualTo(Duration.between(reviewDatetime, reviewedCard.getDue()));
+
+                    // with shared-random fuzz the preview is unfuzzed
+                    assertThat(randomFuzz.getCard(rating)).isEqualTo(reviewedCard);
+
+                    assertThat(deterministic.getCard(rating))
+                            .isEqualTo(
+                                    deterministicScheduler
+                                            .reviewCard(previewedCard, rating, reviewDatetime)
+                                            .card());
+                }
+            }
+        }
+
+        // re-rendering a card is served from the cache until a day passes or it is reviewed
+        PreviewCache previewCache = new PreviewCache(unfuzzedScheduler, 2);
+        Card reviewCard = cards.get(3);
+        Instant due = reviewCard.getDue();
+
+        ReviewPreview preview = previewCache.preview(reviewCard, due);
+        assertThat(previewCache.preview(reviewCard, due)).isSameAs(preview);
+        assertThat(previewCache.preview(reviewCard, due.plus(Duration.ofDays(2))))
+                .isNotSameAs(preview);
+
+        // a cached preview shown later the same day is moved to the new reviewDatetime
+        for (Scheduler scheduler : List.of(unfuzzedScheduler, deterministicScheduler)) {
+
+            PreviewCache sameDayCache = new PreviewCache(scheduler, 4);
+            for (Card sameDayCard :
+                    List.of(Card.builder().cardId(5).due(due).build(), reviewCard)) {
+
+                Instant morning = sameDayCard.getDue().plusSeconds(60);
+                Instant evening = morning.plus(Duration.ofHours(8));
+                sameDayCache.preview(sameDayCard, morning);
+                ReviewPreview eveningPreview = sameDayCache.preview(sameDayCard, evening);
+
+                assertThat(eveningPreview.getReviewDatetime()).isEqualTo(evening);
+                for (Rating rating : Rating.values()) {
+                    assertThat(eveningPreview.getCard(rating))
+                            .isEqualTo(scheduler.reviewCard(sameDayCard, rating, evening).card());
+                }
+            }
+        }
+
+        // as is a card whose memory state changed without a review
+        preview = previewCache.preview(reviewCard, due);
+        Card editedCard = new Card(reviewCard);
+        editedCard.setStability(reviewCard.getStability() * 2);
+        ReviewPreview editedPreview = previewCache.preview(editedCard, due);
+        assertThat(editedPreview).isNotSameAs(preview);
+        assertThat(editedPreview.getCard(Rating.GOOD))
+                .isEqualTo(unfuzzedScheduler.reviewCard(editedCard, Rating.GOOD, due).card());
+        previewCache.clear();
+
+        previewCache.preview(cards.get(4), cards.get(4).getDue());
+        previewCache.preview(Card.builder().cardId(2).build(), due);
+        assertThat(previewCache.size()).isEqualTo(2);
+
+        previewCache.invalidate(2);
+        assertThat(previewCache.size()).isEqualTo(1);
+        previewCache.clear();
+        assertThat(previewCache.size()).isZero();
+    }
+
+    @Test
+    void testRescheduleCard() {
+
+        Scheduler scheduler = Scheduler.builder().enableFuzzing(false).build();
+        Random random = new Random(0);
+
+        List<Card> cards = new ArrayList<>();
+        List<ReviewLog> reviewLogs = new ArrayList<>();
+        for (int cardId = 0; cardId < 50; cardId++) {
+
+            Card card = Card.builder().cardId(cardId).build();
+            Instant reviewDatetime = Instant.parse("2025-01-01T00:00:00.123456Z");
+            for (int i = 0; i < 1 + random.nextInt(10); i++) {
+                CardAndReviewLog result =
+                        scheduler.reviewCard(
+                                card, Rating.values()[random.nextInt(4)], reviewDatetime);
+                card = result.card();
+                reviewLogs.add(result.reviewLog());
+                reviewDatetime = card.getDue().plusSeconds(random.nextInt(3 * 86400));
+            }
+            cards.add(card);
+        }
+
+        // replaying each card's history with the same scheduler gives back the same card
+        for (Card card : cards) {
+            List<ReviewLog> history =
+                    new ArrayList<>(
+                            reviewLogs.stream()
+                                    .filter(reviewLog -> reviewLog.cardId() == card.getCardId())
+                                    .toList());
+            Collections.reverse(history);
+            assertThat(scheduler.rescheduleCard(card, history)).isEqualTo(card);
+        }
+
+        assertThatThrownBy(() -> scheduler.rescheduleCard(cards.get(0), reviewLogs))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        // rescheduling with new parameters changes the cards
+        Scheduler newScheduler =
+                Scheduler.builder().enableFuzzing(false).desiredRetention(0.8).build();
+        List<Card> rescheduled =
+                new Rescheduler(newScheduler, ForkJoinPool.commonPool(), 7)
+                        .rescheduleCards(reviewLogs.stream())
+                        .toList();
+
+        assertThat(rescheduled).hasSize(cards.size());
+        for (int i = 0; i < cards.size(); i++) {
+            Card card = cards.get(i);
+            Card rescheduledCard = rescheduled.get(i);
+            assertThat(rescheduledCard.getCardId()).isEqualTo(card.getCardId());
+            assertThat(rescheduledCard.getLastReview()).isEqualTo(card.getLastReview());
+        }
+        assertThat(rescheduled).isNotEqualTo(cards);
+
+        assertThat(new Rescheduler(scheduler).rescheduleCards(reviewLogs.stream()).toList())
+                .isEqualTo(cards);
+
+        // replays are not reported, and parallel rescheduling needs reproducible fuzz
+        SchedulerMetrics metrics = new SchedulerMetrics();
+        Scheduler listenedScheduler =
+                Scheduler.builder().enableFuzzing(false).listener(metrics).build();
+        assertThat(listenedScheduler.rescheduleCard(cards.get(0), reviewLogs.subList(0, 1)))
+                .isNotNull();
+        assertThat(metrics.getReviewCount()).isZero();
+        assertThatThrownBy(() -> new Rescheduler(Scheduler.builder().build()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void testReviewLogArchive(@TempDir Path tempDir) throws IOException {
+
+        Path path = tempDir.resolve("reviews.fsra");
+        Instant start = Instant.parse("2025-01-01T00:00:00Z");
+
+        // 10 cards reviewed on 10 days, written card by card
+        List<ReviewLog> reviewLogs = new ArrayList<>();
+        for (int cardId = 0; cardId < 10; cardId++) {
+            for (int day = 0; day < 10; day++) {
+                reviewLogs.add(
+                        new ReviewLog(
+                                1_000 + cardId,
+                                Rating.values()[(cardId + day) % 4],
+                                start.plus(Duration.ofDays(day)).plusMillis(cardId),
+                                day % 3 == 0 ? null : -day * 1000));
+            }
+        }
+
+        try (ReviewLogArchive.Appender appender = ReviewLogArchive.appender(path, 25)) {
+            appender.writeAll(reviewLogs.subList(0, 60));
+        }
+
+        // reopening appends after the existing blocks
+        try (ReviewLogArchive.Appender appender = ReviewLogArchive.appender(path, 25)) {
+            appender.writeAll(reviewLogs.subList(60, 100));
+        }
+
+        try (ReviewLogArchive archive = ReviewLogArchive.open(path)) {
+
+            assertThat(archive.size()).isEqualTo(100);
+            assertThat(archive.getBlocks()).hasSize(5);
+            assertThat(archive.stream().toList()).isEqualTo(reviewLogs);
+
+            ReviewLogArchive.Block block = archive.getBlocks().get(0);
+            assertThat(block.getMinCardId()).isEqualTo(1_000);
+            assertThat(block.getMaxCardId()).isEqualTo(1_002);
+            assertThat(block.getCardIds()[24]).isEqualTo(1_002);
+            assertThat(block.getRatings()[1]).isEqualTo(Rating.HARD);
+            assertThat(block.getReviewDurations()[0]).isNull();
+
+            // only blocks overlapping the card range are decoded
+            assertThat(archive.getBlocks(1_004, 1_004, Instant.MIN, Instant.MAX)).hasSize(1);
+            Instant from = start.plus(Duration.ofDays(2));
+            Instant to = start.plus(Duration.ofDays(4));
+            assertThat(archive.stream(1_004, 1_005, from, to).toList())
+                    .isEqualTo(
+                            reviewLogs.stream()
+                                    .filter(r -> r.cardId() >= 1_004 && r.cardId() <= 1_005)
+                                    .filter(r -> !r.reviewDatetime().isBefore(from))
+                                    .filter(r -> r.reviewDatetime().isBefore(to))
+                                    .toList());
+        }
+
+        // an incomplete trailing block is ignored by readers and discarded by appenders
+        Files.write(path, new byte[] {1, 2, 3}, StandardOpenOption.APPEND);
+        try (ReviewLogArchive archive = ReviewLogArchive.open(path)) {
+            assertThat(archive.size()).isEqualTo(100);
+        }
+        try (ReviewLogArchive.Appender appender = ReviewLogArchive.appender(path)) {
+            appender.write(reviewLogs.get(0));
+        }
+        try (ReviewLogArchive archive = ReviewLogArchive.open(path)) {
+            assertThat(archive.size()).isEqualTo(101);
+        }
+
+        assertThatThrownBy(() -> ReviewLogArchive.open(Files.writeString(path, "not an archive")))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void testReviewLogReaderWriter() throws IOException {
+
+        Scheduler scheduler = Scheduler.builder().build();
+        Card card = Card.builder().cardId(7).build();
+        Instant reviewDatetime = Instant.parse("2025-01-01T08:30:00.250Z");
+
+        List<ReviewLog> reviewLogs = new ArrayList<>();
+        Rating[] ratings = {Rating.GOOD, Rating.AGAIN, Rating.HARD, Rating.EASY};
+        for (int i = 0; i < ratings.length; i++) {
+            CardAndReviewLog result =
+                    scheduler.reviewCard(
+                            card, ratings[i], reviewDatetime, i % 2 == 0 ? 1500 + i : null);
+            card = result.card();
+            reviewLogs.add(result.reviewLog());
+            reviewDatetime = card.getDue();
+        }
+
+        // ndjson round trip, each line is readable by ReviewLog.fromJson
+        StringWriter ndjson = new StringWriter();
+        try (ReviewLogWriter writer = ReviewLogWriter.ndjson(ndjson)) {
+            writer.writeAll(reviewLogs);
+        }
+
+        List<String> lines = ndjson.toString().lines().toList();
+        assertThat(lines).hasSize(reviewLogs.size());
+        for (int i = 0; i < lines.size(); i++) {
+            assertThat(ReviewLog.fromJson(lines.get(i))).isEqualTo(reviewLogs.get(i));
+        }
+
+        try (Stream<ReviewLog> stream =
+                ReviewLogReader.ndjson(new StringReader(ndjson.toString())).stream()) {
+            assertThat(stream.toList()).isEqualTo(reviewLogs);
+        }
+
+        // csv round trip
+        StringWriter csv = new StringWriter();
+        try (ReviewLogWriter writer = ReviewLogWriter.csv(csv)) {
+            writer.writeAll(reviewLogs);
+        }
+        assertThat(csv.toString())
+                .startsWith("card_id,review_time,review_rating,review_state,review_duration\n");
+
+        try (ReviewLogReader reader = ReviewLogReader.csv(new StringReader(csv.toString()))) {
+            for (ReviewLog reviewLog : reviewLogs) {
+                assertThat(reader.hasNext()).isTrue();
+                assertThat(reader.next()).isEqualTo(reviewLog);
+            }
+            assertThat(reader.hasNext()).isFalse();
+        }
+
+        // csv columns are matched by name and manual entries are skipped
+        String revlog =
+                "review_rating,card_id,review_time\n"
+                        + "3,1,1735689600000\n"
+                        + "0,1,1735776000000\n"
+                        + "1,2,1735862400000\n";
+        try (Stream<ReviewLog> stream = ReviewLogReader.csv(new StringReader(revlog)).stream()) {
+            assertThat(stream.toList())
+                    .containsExactly(
+                            new ReviewLog(
+                                    1, Rating.GOOD, Instant.ofEpochMilli(1735689600000L), null),
+                            new ReviewLog(
+                                    2, Rating.AGAIN, Instant.ofEpochMilli(1735862400000L), null));
+        }
+
+        assertThatThrownBy(
+                        () ->
+                                ReviewLogReader.csv(new StringReader("card_id,review_time\n"))
+                                        .hasNext())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
     @Test
     void testReviewDefaultArg() {
 
@@ -213,6 +1342,128 @@ public class FSRSTest {
             assertThat(card.toJson()).isNotEqualTo(reviewedCard.toJson());
         }
 
+        @Test
+        void testBulkSerialize() throws IOException {
+
+            List<Card> cards = new ArrayList<>();
+            List<ReviewLog> reviewLogs = new ArrayList<>();
+            for (Rating rating : Rating.values()) {
+                CardAndReviewLog result = scheduler.reviewCard(card, rating);
+                cards.add(result.card());
+                reviewLogs.add(result.reviewLog());
+            }
+
+            // a json array of the same objects as the single-value methods
+            String cardsJson = Card.toJson(cards);
+            assertThat(cardsJson)
+                    .isEqualTo(
+                            "["
+                                    + String.join(",", cards.stream().map(Card::toJson).toList())
+                                    + "]");
+            assertThat(Card.listFromJson(cardsJson)).isEqualTo(cards);
+
+            String reviewLogsJson = ReviewLog.toJson(reviewLogs);
+            assertThat(ReviewLog.listFromJson(reviewLogsJson)).isEqualTo(reviewLogs);
+
+            // streaming variants
+            StringWriter cardsOut = new StringWriter();
+            Card.toJson(cards, cardsOut);
+            assertThat(cardsOut.toString()).isEqualTo(cardsJson);
+            try (Stream<Card> stream = Card.streamFromJson(new StringReader(cardsJson))) {
+                assertThat(stream.toList()).isEqualTo(cards);
+            }
+
+            StringWriter reviewLogsOut = new StringWriter();
+            ReviewLog.toJson(reviewLogs, reviewLogsOut);
+            assertThat(reviewLogsOut.toString()).isEqualTo(reviewLogsJson);
+            try (Stream<ReviewLog> stream =
+                    ReviewLog.streamFromJson(new StringReader(reviewLogsJson))) {
+                assertThat(stream.toList()).isEqualTo(reviewLogs);
+            }
+        }
+
+        @Test
+        void testBinarySerialize() {
+
+            List<Card> cards = new ArrayList<>();
+            List<ReviewLog> reviewLogs = new ArrayList<>();
+            for (Rating rating : Rating.values()) {
+                CardAndReviewLog result = scheduler.reviewCard(card, rating, rating.getValue());
+                cards.add(result.card());
+                reviewLogs.add(result.reviewLog());
+            }
+
+            // null fields, negative ids and sub-millisecond times round trip exactly
+            Card emptyCard = Card.builder().cardId(-7).state(State.REVIEW).build();
+            emptyCard.setDue(null);
+            cards.add(emptyCard);
+            cards.add(
+                    Card.builder()
+                            .cardId(Integer.MIN_VALUE)
+                            .due(Instant.ofEpochSecond(-1, 123_456_789))
+                            .build());
+            reviewLogs.add(
+                    new ReviewLog(
+                            Integer.MAX_VALUE, Rating.AGAIN, Instant.ofEpochSecond(1, 1), null));
+
+            for (Card card : cards) {
+                assertThat(BinaryCodec.decodeCard(BinaryCodec.encode(card))).isEqualTo(card);
+            }
+            for (ReviewLog reviewLog : reviewLogs) {
+                assertThat(BinaryCodec.decodeReviewLog(BinaryCodec.encode(reviewLog)))
+                        .isEqualTo(reviewLog);
+            }
+            assertThat(BinaryCodec.decodeCards(BinaryCodec.encodeCards(cards))).isEqualTo(cards);
+            assertThat(BinaryCodec.decodeReviewLogs(BinaryCodec.encodeReviewLogs(reviewLogs)))
+                    .isEqualTo(reviewLogs);
+
+            // arrays larger than the initial buffer grow it
+            List<ReviewLog> manyReviewLogs = new ArrayList<>();
+            for (int i = 0; i < 100_000; i++) {
+                manyReviewLogs.add(
+                        new ReviewLog(i, Rating.values()[i % 4], Instant.ofEpochSecond(i, i), i));
+            }
+            assertThat(BinaryCodec.decodeReviewLogs(BinaryCodec.encodeReviewLogs(manyReviewLogs)))
+                    .isEqualTo(manyReviewLogs);
+
+            Scheduler customScheduler =
+                    Scheduler.builder()
+                            .learningSteps(new Duration[] {Duration.ofSeconds(30)})
+                            .relearningSteps(new Duration[] {})
+                            .deterministicFuzzing(true)
+                            .build();
+            for (Scheduler s : new Scheduler[] {scheduler, customScheduler}) {
+                Scheduler decoded = BinaryCodec.decodeScheduler(BinaryCodec.encode(s));
+                assertThat(decoded).isEqualTo(s);
+                assertThat(decoded.toJson()).isEqualTo(s.toJson());
+            }
+
+            // much smaller than json
+            assertThat(BinaryCodec.encode(cards.get(0)).length)
+                    .isLessThan(cards.get(0).toJson().length() / 3);
+
+            // records embedded in a larger buffer without headers
+            ByteBuffer buffer = ByteBuffer.allocate(1024);
+            buffer.putInt(42);
+            BinaryCodec.writeCard(buffer, cards.get(1));
+            BinaryCodec.writeReviewLog(buffer, reviewLogs.get(1));
+            buffer.flip();
+            assertThat(buffer.getInt()).isEqualTo(42);
+            assertThat(BinaryCodec.readCard(buffer)).isEqualTo(cards.get(1));
+            assertThat(BinaryCodec.readReviewLog(buffer)).isEqualTo(reviewLogs.get(1));
+            assertThat(buffer.hasRemaining()).isFalse();
+
+            // the header is checked
+            byte[] cardBytes = BinaryCodec.encode(cards.get(0));
+            assertThatThrownBy(() -> BinaryCodec.decodeReviewLog(cardBytes))
+                    .isInstanceOf(IllegalArgumentException.class);
+            cardBytes[2] = (byte) (BinaryCodec.VERSION + 1);
+            assertThatThrownBy(() -> BinaryCodec.decodeCard(cardBytes))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> BinaryCodec.decodeCard(card.toJson().getBytes()))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+
         @Test
         void testSchedulerSerialize() {
 
@@ -691,6 +1942,54 @@ public class FSRSTest {
         assertThat(retrievability).isBetween(0.0, 1.0);
     }
 
+    @Test
+    void testCardRetrievabilities() {
+
+        Scheduler scheduler = Scheduler.builder().build();
+
+        Instant start = Instant.parse("2022-11-29T12:30:00Z");
+        Instant now = start.plus(Duration.ofDays(30));
+
+        CardStore cardStore = new CardStore();
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+
+            Card card = Card.builder().cardId(i).due(start).build();
+            Instant reviewDatetime = start;
+            for (int j = 0; j < i % 4; j++) {
+                card =
+                        scheduler
+                                .reviewCard(card, Rating.values()[(i + j) % 4], reviewDatetime)
+                                .card();
+                reviewDatetime = card.getDue();
+            }
+
+            cardStore.add(card);
+            cards.add(card);
+        }
+
+        double[] stabilities = new double[cards.size()];
+        long[] lastReviewEpochMillis = new long[cards.size()];
+        for (int i = 0; i < cards.size(); i++) {
+            CardState cardState = new CardState(cards.get(i));
+            stabilities[i] = cardState.getStability();
+            lastReviewEpochMillis[i] = cardState.getLastReviewEpochMillis();
+        }
+
+        double[] retrievabilities = new double[cards.size()];
+        scheduler.getCardRetrievabilities(
+                stabilities, lastReviewEpochMillis, now.toEpochMilli(), retrievabilities);
+
+        double[] storeRetrievabilities = new double[cards.size()];
+        scheduler.getCardRetrievabilities(cardStore, now.toEpochMilli(), storeRetrievabilities);
+
+        for (int i = 0; i < cards.size(); i++) {
+            double retrievability = scheduler.getCardRetrievability(cards.get(i), now);
+            assertThat(retrievabilities[i]).isEqualTo(retrievability);
+            assertThat(storeRetrievabilities[i]).isEqualTo(retrievability);
+        }
+    }
+
     @Test
     void testReviewState() {
 
@@ -769,6 +2068,75 @@ public class FSRSTest {
         assertThat(intervalDays).isEqualTo(18);
     }
 
+    @Test
+    void testDeterministicFuzz() {
+
+        Scheduler scheduler = Scheduler.builder().deterministicFuzzing(true).build();
+
+        // review every card to a REVIEW state with a fuzzed interval
+        Instant start = Instant.parse("2025-01-01T00:00:00Z");
+        int numCards = 1000;
+        CardState[] cards = new CardState[numCards];
+        Rating[] ratings = new Rating[numCards];
+        long[] reviewEpochMillis = new long[numCards];
+        for (int i = 0; i < numCards; i++) {
+            CardState cardState = new CardState();
+            cardState.setCardId(i);
+            scheduler.reviewCard(cardState, Rating.EASY, start.toEpochMilli());
+            cards[i] = cardState;
+            ratings[i] = Rating.GOOD;
+            reviewEpochMillis[i] = cardState.getDueEpochMillis();
+        }
+
+        CardState[] sequential = new CardState[numCards];
+        for (int i = 0; i < numCards; i++) {
+            sequential[i] = new CardState(cards[i].toCard());
+        }
+        scheduler.reviewCards(sequential, ratings, reviewEpochMillis);
+
+        // the same reviews in reverse order, in parallel and on a copied scheduler
+        Scheduler copiedScheduler = new Scheduler(scheduler);
+        CardState[] parallel = new CardState[numCards];
+        IntStream.range(0, numCards)
+                .parallel()
+                .map(i -> numCards - 1 - i)
+                .forEach(
+                        i -> {
+                            parallel[i] = new CardState(cards[i].toCard());
+                            copiedScheduler.reviewCard(
+                                    parallel[i], ratings[i], reviewEpochMillis[i]);
+                        });
+
+        assertThat(parallel).isEqualTo(sequential);
+
+        // the fuzz still varies between cards and with the seed
+        assertThat(
+                        Arrays.stream(sequential)
+                                .mapToLong(CardState::getDueEpochMillis)
+                                .distinct()
+                                .count())
+                .isGreaterThan(1);
+
+        Scheduler otherSeedScheduler =
+                Scheduler.builder().deterministicFuzzing(true).randomSeedNumber(12345).build();
+        CardState[] otherSeed = new CardState[numCards];
+        for (int i = 0; i < numCards; i++) {
+            otherSeed[i] = new CardState(cards[i].toCard());
+        }
+        otherSeedScheduler.reviewCards(otherSeed, ratings, reviewEpochMillis);
+        assertThat(otherSeed).isNotEqualTo(sequential);
+
+        // the Card path gets the same fuzz as the CardState path
+        Card card =
+                scheduler
+                        .reviewCard(
+                                cards[0].toCard(),
+                                ratings[0],
+                                Instant.ofEpochMilli(reviewEpochMillis[0]))
+                        .card();
+        assertThat(new CardState(card)).isEqualTo(sequential[0]);
+    }
+
     @Test
     void testOneCardMultipleSchedulers() {
 
@@ -869,6 +2237,181 @@ public class FSRSTest {
                 .isLessThanOrEqualTo(scheduler.getMaximumInterval());
     }
 
+    @Test
+    void testTimeZone() {
+
+        Scheduler utcScheduler = Scheduler.builder().build();
+        Scheduler zonedScheduler =
+                Scheduler.builder()
+                        .timeZone(ZoneOffset.ofHours(9))
+                        .dayStartOffset(Duration.ofHours(4))
+                        .build();
+
+        // 23:00 and 01:00 local time, two hours apart
+        Instant evening =
+                ZonedDateTime.of(2026, 5, 1, 23, 0, 0, 0, ZoneOffset.ofHours(9)).toInstant();
+        Instant night = evening.plus(Duration.ofHours(2));
+        Instant morning = evening.plus(Duration.ofHours(6));
+
+        assertThat(utcScheduler.daysBetween(evening, night)).isEqualTo(0);
+        assertThat(utcScheduler.daysBetween(evening, morning)).isEqualTo(0);
+        assertThat(utcScheduler.daysBetween(evening, evening.plus(Duration.ofDays(3))))
+                .isEqualTo(3);
+
+        // the local day only changes at 04:00
+        assertThat(zonedScheduler.daysBetween(evening, night)).isEqualTo(0);
+        assertThat(zonedScheduler.daysBetween(evening, morning)).isEqualTo(1);
+        assertThat(zonedScheduler.daysBetween(morning, evening)).isEqualTo(-1);
+
+        Card card = Card.builder().build();
+        card =
+                zonedScheduler
+                        .reviewCard(card, Rating.GOOD, evening.minus(Duration.ofDays(10)))
+                        .card();
+        card =
+                zonedScheduler
+                        .reviewCard(card, Rating.GOOD, evening.minus(Duration.ofDays(9)))
+                        .card();
+        card = zonedScheduler.reviewCard(card, Rating.GOOD, evening).card();
+        assertThat(card.getState()).isEqualTo(State.REVIEW);
+
+        // the review on the next local day is not a same day review
+        Card sameDayCard = utcScheduler.reviewCard(card, Rating.GOOD, morning).card();
+        Card nextDayCard = zonedScheduler.reviewCard(card, Rating.GOOD, morning).card();
+        assertThat(nextDayCard.getStability()).isNotEqualTo(sameDayCard.getStability());
+        assertThat(zonedScheduler.getCardRetrievability(card, morning))
+                .isLessThan(utcScheduler.getCardRetrievability(card, morning));
+
+        // days in zones with daylight saving time are not always 24 hours long
+        Scheduler newYorkScheduler =
+                Scheduler.builder().timeZone(ZoneId.of("America/New_York")).build();
+        Instant beforeDst =
+                ZonedDateTime.of(2026, 3, 7, 12, 0, 0, 0, ZoneId.of("America/New_York"))
+                        .toInstant();
+        Instant afterDst =
+                ZonedDateTime.of(2026, 3, 8, 12, 0, 0, 0, ZoneId.of("America/New_York"))
+                        .toInstant();
+        assertThat(Duration.between(beforeDst, afterDst)).isEqualTo(Duration.ofHours(23));
+        assertThat(newYorkScheduler.daysBetween(beforeDst, afterDst)).isEqualTo(1);
+        assertThat(utcScheduler.daysBetween(beforeDst, afterDst)).isEqualTo(0);
+
+        assertThatThrownBy(() -> Scheduler.builder().dayStartOffset(Duration.ofHours(24)).build())
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Scheduler.builder().dayStartOffset(Duration.ofHours(-1)).build())
+                .isInstanceOf(IllegalArgumentException.class);
+
+        for (Scheduler scheduler : List.of(utcScheduler, zonedScheduler, newYorkScheduler)) {
+            assertThat(Scheduler.fromJson(scheduler.toJson())).isEqualTo(scheduler);
+            assertThat(BinaryCodec.decodeScheduler(BinaryCodec.encode(scheduler)))
+                    .isEqualTo(scheduler);
+        }
+
+        SchedulerRegistry registry = new SchedulerRegistry(8);
+        assertThat(registry.intern(zonedScheduler))
+                .isNotSameAs(registry.intern(utcScheduler))
+                .isNotSameAs(registry.intern(newYorkScheduler));
+        assertThat(registry.get(Scheduler.builder().timeZone(ZoneOffset.ofHours(9))))
+                .isNotSameAs(zonedScheduler);
+        assertThat(
+                        registry.get(
+                                Scheduler.builder()
+                                        .timeZone(ZoneOffset.ofHours(9))
+                                        .dayStartOffset(Duration.ofHours(4))))
+                .isSameAs(zonedScheduler);
+    }
+
+    @Test
+    void testDueHistogram() {
+
+        Instant importDatetime = Instant.parse("2026-05-01T12:00:00Z");
+
+        Scheduler exactScheduler = Scheduler.builder().enableFuzzing(false).build();
+        Scheduler fuzzScheduler =
+                Scheduler.builder().enableFuzzing(true).deterministicFuzzing(true).build();
+
+        // a large import reviewed on one day, all with the same unfuzzed interval
+        List<Card> exactCards = new ArrayList<>();
+        List<Card> fuzzedCards = new ArrayList<>();
+        List<Card> balancedCards = new ArrayList<>();
+        DueHistogram dueHistogram = new DueHistogram(fuzzScheduler);
+        for (int cardId = 1; cardId <= 300; cardId++) {
+
+            Card card = Card.builder().cardId(cardId).due(importDatetime).build();
+            dueHistogram.add(card);
+
+            exactCards.add(exactScheduler.reviewCard(card, Rating.EASY, importDatetime).card());
+            fuzzedCards.add(fuzzScheduler.reviewCard(card, Rating.EASY, importDatetime).card());
+            balancedCards.add(
+                    fuzzScheduler
+                            .reviewCard(card, Rating.EASY, importDatetime, null, dueHistogram)
+                            .card());
+        }
+
+        // new cards are not counted, reviewed cards are
+        assertThat(dueHistogram.size()).isEqualTo(300);
+
+        int intervalDays =
+                (int) Duration.between(importDatetime, exactCards.get(0).getDue()).toDays();
+        assertThat(intervalDays).isGreaterThan(2);
+
+        Map<Instant, Long> fuzzedCounts =
+                fuzzedCards.stream()
+                        .collect(Collectors.groupingBy(Card::getDue, Collectors.counting()));
+        Map<Instant, Long> balancedCounts =
+                balancedCards.stream()
+                        .collect(Collectors.groupingBy(Card::getDue, Collectors.counting()));
+
+        // the balanced cards are spread evenly over the days fuzzing uses
+        assertThat(fuzzedCounts.keySet()).containsAll(balancedCounts.keySet());
+        assertThat(balancedCounts).hasSizeGreaterThan(1);
+        assertThat(Collections.max(balancedCounts.values()))
+                .isLessThan(Collections.max(fuzzedCounts.values()))
+                .isLessThanOrEqualTo(Collections.min(balancedCounts.values()) + 1);
+
+        for (Card card : balancedCards) {
+
+            assertThat(dueHistogram.getCount(card.getDue()))
+                    .isEqualTo(balancedCounts.get(card.getDue()).intValue());
+        }
+
+        // reviewing again moves the card to its new due day
+        Card card = balancedCards.get(0);
+        int count = dueHistogram.getCount(card.getDue());
+        Card reviewedCard =
+                fuzzScheduler
+                        .reviewCard(card, Rating.GOOD, card.getDue(), null, dueHistogram)
+                        .card();
+        assertThat(reviewedCard.getState()).isEqualTo(State.REVIEW);
+        assertThat(dueHistogram.getCount(card.getDue())).isEqualTo(count - 1);
+        assertThat(dueHistogram.getCount(reviewedCard.getDue())).isEqualTo(1);
+        assertThat(dueHistogram.size()).isEqualTo(300);
+
+        // without a histogram this is a plain review
+        assertThat(fuzzScheduler.reviewCard(card, Rating.GOOD, card.getDue(), null, null))
+                .isEqualTo(fuzzScheduler.reviewCard(card, Rating.GOOD, card.getDue()));
+
+        // without fuzzing the intervals are not balanced, but the cards are still counted
+        Card exactCard =
+                exactScheduler
+                        .reviewCard(card, Rating.GOOD, card.getDue(), null, dueHistogram)
+                        .card();
+        assertThat(exactCard)
+                .isEqualTo(exactScheduler.reviewCard(card, Rating.GOOD, card.getDue()).card());
+        assertThat(dueHistogram.getCount(reviewedCard.getDue())).isZero();
+        assertThat(dueHistogram.size()).isEqualTo(300);
+
+        // only counted cards are removed, so removing twice or an unknown card is harmless
+        int exactCount = dueHistogram.getCount(exactCard.getDue());
+        dueHistogram.remove(exactCard);
+        dueHistogram.remove(exactCard);
+        dueHistogram.remove(Card.builder().cardId(1000).due(exactCard.getDue()).build());
+        assertThat(dueHistogram.getCount(exactCard.getDue())).isEqualTo(exactCount - 1);
+        assertThat(dueHistogram.size()).isEqualTo(299);
+
+        dueHistogram.clear();
+        assertThat(dueHistogram.size()).isEqualTo(0);
+    }
+
     @Test
     void testUniqueCardIds() {
 
@@ -889,6 +2432,45 @@ public class FSRSTest {
         assertThat(uniqueCountCardIds).isEqualTo(totalCountCardIds);
     }
 
+    @Test
+    void testCardIdGenerators() {
+
+        // the default generator never repeats, even across threads
+        int[] cardIds =
+                IntStream.range(0, 100_000)
+                        .parallel()
+                        .map(i -> Card.builder().build().getCardId())
+                        .toArray();
+        assertThat(IntStream.of(cardIds).distinct().count()).isEqualTo(cardIds.length);
+
+        CardIdGenerator sequential = CardIdGenerator.sequential(10);
+        assertThat(Card.builder().cardIdGenerator(sequential).build().getCardId()).isEqualTo(10);
+        assertThat(Card.builder().cardIdGenerator(sequential).build().getCardId()).isEqualTo(11);
+
+        // an explicit cardId takes precedence over the generator
+        assertThat(Card.builder().cardIdGenerator(sequential).cardId(3).build().getCardId())
+                .isEqualTo(3);
+        assertThat(sequential.nextCardId()).isEqualTo(12);
+
+        CardIdGenerator node = CardIdGenerator.nodeSequence(5, 8, 0);
+        assertThat(node.nextCardId()).isEqualTo(5 << 24);
+        assertThat(node.nextCardId()).isEqualTo((5 << 24) | 1);
+
+        CardIdGenerator exhausted = CardIdGenerator.nodeSequence(1, 31, 1);
+        assertThat(exhausted.nextCardId()).isEqualTo(3);
+        assertThatThrownBy(exhausted::nextCardId).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> CardIdGenerator.nodeSequence(256, 8, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        CardIdGenerator defaultGenerator = Card.getDefaultCardIdGenerator();
+        try {
+            Card.setDefaultCardIdGenerator(CardIdGenerator.sequential(-5));
+            assertThat(Card.builder().build().getCardId()).isEqualTo(-5);
+        } finally {
+            Card.setDefaultCardIdGenerator(defaultGenerator);
+        }
+    }
+
     @Test
     void testStabilityLowerBound() {
 
@@ -968,4 +2550,76 @@ public class FSRSTest {
 
         assertThat(card.getState()).isEqualTo(State.REVIEW);
     }
+
+    @Test
+    void testOptimizer() {
+
+        // review history of a learner whose memory follows different parameters than the defaults
+        double[] trueParameters = Scheduler.builder().build().getParameters().clone();
+        trueParameters[0] = 0.8;
+        trueParameters[2] = 5.0;
+        trueParameters[8] = 1.2;
+        trueParameters[20] = 0.3;
+        Scheduler trueScheduler =
+                Scheduler.builder().parameters(trueParameters).enableFuzzing(false).build();
+
+        Random random = new Random(0);
+        List<ReviewLog> reviewLogs = new ArrayList<>();
+        for (int cardId = 0; cardId < 300; cardId++) {
+
+            Card card = Card.builder().cardId(cardId).build();
+            Instant reviewDatetime = Instant.parse("2025-01-01T00:00:00Z");
+            Rating rating = Rating.values()[random.nextInt(4)];
+
+            for (int i = 0; i < 8; i++) {
+
+                CardAndReviewLog result = trueScheduler.reviewCard(card, rating, reviewDatetime);
+                card = result.card();
+                reviewLogs.add(result.reviewLog());
+
+                reviewDatetime = card.getDue().plus(Duration.ofDays(random.nextInt(3)));
+                double retrievability = trueScheduler.getCardRetrievability(card, reviewDatetime);
+                rating = random.nextDouble() < retrievability ? Rating.GOOD : Rating.AGAIN;
+            }
+        }
+
+        Optimizer optimizer = new Optimizer(reviewLogs.stream());
+        assertThat(optimizer.getNumCards()).isEqualTo(300);
+        assertThat(optimizer.getNumReviews()).isEqualTo(reviewLogs.size());
+
+        // the hand-written gradient matches finite differences
+        double[] defaultParameters = Scheduler.builder().build().getParameters();
+        double[] lossAndGradient = optimizer.computeLossAndGradient(defaultParameters);
+        for (int k = 0; k < 21; k++) {
+
+            double h = 1e-6;
+            double[] plus = defaultParameters.clone();
+            double[] minus = defaultParameters.clone();
+            plus[k] += h;
+            minus[k] -= h;
+
+            double numericGradient =
+                    (optimizer.computeLossAndGradient(plus)[21]
+                                    - optimizer.computeLossAndGradient(minus)[21])
+                            / (2 * h);
+
+            assertThat(lossAndGradient[k])
+                    .as("gradient of parameter %d", k)
+                    .isCloseTo(
+                            numericGradient, within(1e-3 * Math.max(1, Math.abs(numericGradient))));
+        }
+
+        // training lowers the loss and keeps the parameters usable by a Scheduler
+        double[] optimalParameters = optimizer.computeOptimalParameters();
+        assertThat(optimizer.computeLossAndGradient(optimalParameters)[21])
+                .isLessThan(lossAndGradient[21]);
+        Scheduler.builder().parameters(optimalParameters).build();
+
+        double optimalRetention = optimizer.computeOptimalRetention(optimalParameters);
+        assertThat(optimalRetention).isBetween(0.7, 0.95);
+
+        // too little history leaves the initial parameters unchanged
+        Optimizer smallOptimizer = new Optimizer(reviewLogs.subList(0, 16).stream());
+        assertThat(smallOptimizer.computeOptimalParameters()).containsExactly(defaultParameters);
+    }
 }